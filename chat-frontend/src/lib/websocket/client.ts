@@ -27,6 +27,16 @@ export class WebSocketClient {
       heartbeatOutgoing: 4000,
       onConnect: () => {
         console.log("WebSocket connected");
+        // Errores de comandos enviados por WebSocket (p. ej. un mensaje que no se pudo guardar)
+        this.client?.subscribe("/user/queue/errors", (message: IMessage) => {
+          try {
+            const error = JSON.parse(message.body);
+            console.error("Server error:", error);
+            onError?.(error);
+          } catch (error) {
+            console.error("Error parsing server error:", error);
+          }
+        });
         onConnect?.();
       },
       onStompError: (frame) => {
@@ -63,7 +73,7 @@ export class WebSocketClient {
       return;
     }
 
-    const destination = `/topic/chat/${chatId}`;
+    const destination = `/topic/chat.${chatId}`;
     const subscription = this.client.subscribe(destination, (message: IMessage) => {
       try {
         const data = JSON.parse(message.body);
@@ -84,7 +94,7 @@ export class WebSocketClient {
       return;
     }
 
-    const destination = `/topic/chat/${chatId}/typing`;
+    const destination = `/topic/chat.${chatId}.typing`;
     const subscription = this.client.subscribe(destination, (message: IMessage) => {
       try {
         const data = JSON.parse(message.body);
@@ -101,7 +111,7 @@ export class WebSocketClient {
   subscribeToEdits(chatId: number, callback: (message: any) => void) {
     if (!this.client?.connected) return;
 
-    const destination = `/topic/chat/${chatId}/edit`;
+    const destination = `/topic/chat.${chatId}.edit`;
     const subscription = this.client.subscribe(destination, (message: IMessage) => {
       try {
         const data = JSON.parse(message.body);
@@ -118,7 +128,7 @@ export class WebSocketClient {
   subscribeToDeletes(chatId: number, callback: (messageId: string) => void) {
     if (!this.client?.connected) return;
 
-    const destination = `/topic/chat/${chatId}/delete`;
+    const destination = `/topic/chat.${chatId}.delete`;
     const subscription = this.client.subscribe(destination, (message: IMessage) => {
       callback(message.body);
     });
@@ -130,7 +140,7 @@ export class WebSocketClient {
   subscribeToReactions(chatId: number, callback: (message: any) => void) {
     if (!this.client?.connected) return;
 
-    const destination = `/topic/chat/${chatId}/reaction`;
+    const destination = `/topic/chat.${chatId}.reaction`;
     const subscription = this.client.subscribe(destination, (message: IMessage) => {
       try {
         const data = JSON.parse(message.body);
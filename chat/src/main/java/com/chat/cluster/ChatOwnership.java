@@ -0,0 +1,56 @@
+package com.chat.cluster;
+
+import com.chat.config.ClusterConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Dueño de cada chat con afinidad activa (chat.cluster.affinity.enabled en modo postgres).
+ * El dueño ejecuta los envíos e indicadores de escritura recibidos por WebSocket ({@code ChatCommandRouter}) y es
+ * el único que guarda los mensajes recientes del chat; sin afinidad todos los chats son locales.
+ * La pertenencia no se particiona: {@code ChatMembershipCache} se indexa por usuario y cada nodo autoriza en local
+ * los SUBSCRIBE y las peticiones REST que recibe. El indicador de escritura no tiene estado en memoria (va a Mongo).
+ */
+@Component
+@Slf4j
+public class ChatOwnership {
+
+    private final ClusterConfig config;
+    private final boolean enabled;
+    private volatile ConsistentHashRing ring;
+
+    public ChatOwnership(ClusterConfig config) {
+        this.config = config;
+        this.enabled = config.getAffinity().isEnabled() && config.getMode() == ClusterConfig.Mode.POSTGRES;
+        if (config.getAffinity().isEnabled() && !enabled) {
+            log.warn("Chat affinity requires chat.cluster.mode=postgres, ignoring it");
+        }
+        this.ring = ConsistentHashRing.of(Set.of(config.getNodeId()), config.getAffinity().getVirtualNodes());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isLocal(Long chatId) {
+        return !enabled || config.getNodeId().equals(ring.ownerOf(chatId));
+    }
+
+    public String ownerOf(Long chatId) {
+        return enabled ? ring.ownerOf(chatId) : config.getNodeId();
+    }
+
+    /**
+     * Reconstruye el anillo con los nodos vivos; devuelve true si cambió
+     */
+    boolean updateMembers(Set<String> liveNodes) {
+        if (!enabled || liveNodes.equals(ring.nodes())) {
+            return false;
+        }
+        ring = ConsistentHashRing.of(liveNodes, config.getAffinity().getVirtualNodes());
+        log.info("Chat ownership ring updated: {} nodes", liveNodes.size());
+        return true;
+    }
+}
@@ -0,0 +1,38 @@
+package com.chat.cluster;
+
+import org.springframework.util.MimeType;
+
+/**
+ * Replica hacia los demás nodos los eventos publicados en el broker local.
+ * Lo recibido de otros nodos se entrega como {@link RemoteBroadcastEvent}, {@link RemoteChatInvalidationEvent},
+ * {@link RemoteMembershipRevokedEvent} y {@link ForwardedChatCommandEvent}.
+ */
+public interface ClusterFanout extends MembershipRevocations {
+
+    /**
+     * Reenvía a todos los nodos un mensaje ya publicado localmente
+     */
+    void publish(String destination, byte[] payload, MimeType contentType);
+
+    /**
+     * Reenvía un mensaje de destino de usuario solo a los nodos donde el usuario tiene sesiones
+     */
+    void publishToUser(String user, String destination, byte[] payload, MimeType contentType);
+
+    /**
+     * Indica si el usuario tiene sesiones abiertas en otros nodos
+     */
+    boolean hasRemoteSessions(String user);
+
+    /**
+     * Avisa a los demás nodos (con afinidad, solo al dueño) de que el estado cacheado de un chat cambió.
+     * No se descarta: si no se puede emitir se reintenta hasta lograrlo.
+     */
+    void invalidateChat(Long chatId);
+
+    /**
+     * Envía un comando de chat al nodo dueño para que lo ejecute él.
+     * Devuelve false si no se pudo entregar: el llamador debe ejecutarlo localmente.
+     */
+    boolean forward(String node, String command, Long userId, String user, byte[] body);
+}
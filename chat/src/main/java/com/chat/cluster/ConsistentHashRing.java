@@ -0,0 +1,87 @@
+package com.chat.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Anillo de hash consistente inmutable con nodos virtuales.
+ * Las posiciones se guardan ordenadas en un long[] y la búsqueda es binaria, sin boxing.
+ */
+final class ConsistentHashRing {
+
+    private final long[] positions;
+    private final String[] owners;
+    private final Set<String> nodes;
+
+    private ConsistentHashRing(long[] positions, String[] owners, Set<String> nodes) {
+        this.positions = positions;
+        this.owners = owners;
+        this.nodes = nodes;
+    }
+
+    static ConsistentHashRing of(Collection<String> nodes, int virtualNodes) {
+        Set<String> sorted = new TreeSet<>(nodes);
+        int size = sorted.size() * virtualNodes;
+        long[] keys = new long[size];
+        String[] values = new String[size];
+        int i = 0;
+        for (String node : sorted) {
+            for (int v = 0; v < virtualNodes; v++) {
+                keys[i] = mix(hash(node + "#" + v));
+                values[i] = node;
+                i++;
+            }
+        }
+        // Ordena las posiciones arrastrando su nodo
+        Integer[] order = new Integer[size];
+        for (int j = 0; j < size; j++) {
+            order[j] = j;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+        long[] positions = new long[size];
+        String[] owners = new String[size];
+        for (int j = 0; j < size; j++) {
+            positions[j] = keys[order[j]];
+            owners[j] = values[order[j]];
+        }
+        return new ConsistentHashRing(positions, owners, Set.copyOf(sorted));
+    }
+
+    /**
+     * Nodo dueño de la clave: el primero en el sentido del anillo a partir de su hash
+     */
+    String ownerOf(long key) {
+        if (positions.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(positions, mix(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == positions.length ? 0 : index];
+    }
+
+    Set<String> nodes() {
+        return nodes;
+    }
+
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ b) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Finalizador de SplitMix64: reparte uniformemente claves consecutivas
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,45 @@
+package com.chat.cluster;
+
+/**
+ * Contenido de cada NOTIFY. Los envíos que no caben en un NOTIFY viajan por referencia ({@code spillId}).
+ */
+record FanoutEnvelope(String node, Kind kind, String destination, String contentType, byte[] payload,
+                      Long chatId, String user, String targetNode, String command, Long userId, Long spillId) {
+
+    enum Kind {
+        BROADCAST, INVALIDATE, MEMBERSHIP_REVOKED, USER_JOINED, USER_LEFT, NODE_DOWN, FORWARD, SPILLED
+    }
+
+    static FanoutEnvelope broadcast(String node, String destination, String contentType, byte[] payload) {
+        return new FanoutEnvelope(node, Kind.BROADCAST, destination, contentType, payload,
+                null, null, null, null, null, null);
+    }
+
+    static FanoutEnvelope invalidation(String node, Long chatId) {
+        return new FanoutEnvelope(node, Kind.INVALIDATE, null, null, null, chatId, null, null, null, null, null);
+    }
+
+    static FanoutEnvelope membershipRevoked(String node, Long chatId, Long userId) {
+        return new FanoutEnvelope(node, Kind.MEMBERSHIP_REVOKED, null, null, null, chatId, null, null, null, userId, null);
+    }
+
+    static FanoutEnvelope userJoined(String node, String user) {
+        return new FanoutEnvelope(node, Kind.USER_JOINED, null, null, null, null, user, null, null, null, null);
+    }
+
+    static FanoutEnvelope userLeft(String node, String user) {
+        return new FanoutEnvelope(node, Kind.USER_LEFT, null, null, null, null, user, null, null, null, null);
+    }
+
+    static FanoutEnvelope nodeDown(String node, String deadNode) {
+        return new FanoutEnvelope(node, Kind.NODE_DOWN, null, null, null, null, null, deadNode, null, null, null);
+    }
+
+    static FanoutEnvelope forward(String node, String command, Long userId, String user, byte[] body) {
+        return new FanoutEnvelope(node, Kind.FORWARD, null, null, body, null, user, null, command, userId, null);
+    }
+
+    static FanoutEnvelope spilled(String node, Long spillId) {
+        return new FanoutEnvelope(node, Kind.SPILLED, null, null, null, null, null, null, null, null, spillId);
+    }
+}
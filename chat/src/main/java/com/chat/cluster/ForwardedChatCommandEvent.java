@@ -0,0 +1,8 @@
+package com.chat.cluster;
+
+/**
+ * Comando de chat reenviado por otro nodo a este, dueño del chat. {@code user} es el nombre del principal
+ * que lo envió, para devolverle los errores por /user/queue/errors.
+ */
+public record ForwardedChatCommandEvent(String command, Long userId, String user, byte[] body) {
+}
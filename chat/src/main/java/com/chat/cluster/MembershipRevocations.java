@@ -0,0 +1,13 @@
+package com.chat.cluster;
+
+/**
+ * Propaga a los demás nodos que un usuario dejó de participar en un chat.
+ * Lo recibido de otros nodos se entrega como {@link RemoteMembershipRevokedEvent}.
+ */
+public interface MembershipRevocations {
+
+    /**
+     * No se descarta: si no se puede emitir se reintenta hasta lograrlo.
+     */
+    void revokeMembership(Long chatId, Long userId);
+}
@@ -0,0 +1,491 @@
+package com.chat.cluster;
+
+import com.chat.config.ClusterConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.security.Principal;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Fan-out entre nodos con LISTEN/NOTIFY de PostgreSQL.
+ * Los NOTIFY de difusión se emiten desde un único hilo (conserva el orden y no bloquea a quien publica); los
+ * que no se pueden perder (invalidaciones, bajas de miembros, altas de usuarios) se reintentan. Se escuchan
+ * en una conexión dedicada, fuera del pool. Los payloads que superan el límite de NOTIFY se guardan en una
+ * tabla UNLOGGED y se envía solo su id.
+ * Cada nodo escucha el canal compartido y uno propio: los destinos de usuario se envían solo a los canales
+ * de los nodos donde el {@link UserNodeRegistry} sabe que el usuario tiene sesiones.
+ */
+@Component
+@ConditionalOnProperty(prefix = "chat.cluster", name = "mode", havingValue = "postgres")
+@Slf4j
+public class PostgresClusterFanout implements ClusterFanout {
+
+    /**
+     * El límite de PostgreSQL es 8000 bytes; se deja margen
+     */
+    private static final int MAX_NOTIFY_BYTES = 7500;
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final String SPILL_TABLE = "chat_fanout_spill";
+    private static final int SPILL_CLEANUP_EVERY = 100;
+
+    private final ClusterConfig config;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChatOwnership ownership;
+    private final String nodeId;
+    private final String channel;
+    private final String nodeChannel;
+    private final UserNodeRegistry registry;
+    private final ThreadPoolExecutor publisher;
+    private final ScheduledExecutorService heartbeat;
+    /**
+     * Avisos que no se pudieron emitir y se reintentan en cada heartbeat: chatId -> canal destino
+     */
+    private final Map<Long, String> pendingInvalidations = new ConcurrentHashMap<>();
+    /**
+     * Usuarios cuya alta o baja en este nodo no se pudo persistir o anunciar
+     */
+    private final Set<String> pendingAnnouncements = ConcurrentHashMap.newKeySet();
+    private final Queue<FanoutEnvelope> pendingRevocations = new ConcurrentLinkedQueue<>();
+    private final AtomicLong spills = new AtomicLong();
+    private final Counter published;
+    private final Counter routedToUser;
+    private final Counter received;
+    private final Counter dropped;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public PostgresClusterFanout(ClusterConfig config, JdbcTemplate jdbcTemplate,
+                                 DataSourceProperties dataSourceProperties, ObjectMapper objectMapper,
+                                 ApplicationEventPublisher eventPublisher, ChatOwnership ownership,
+                                 MeterRegistry meterRegistry) {
+        this.config = config;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.ownership = ownership;
+        this.nodeId = config.getNodeId();
+        this.channel = config.getPostgres().getChannel();
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalStateException("Invalid chat.cluster.postgres.channel: " + channel);
+        }
+        this.nodeChannel = nodeChannel(nodeId);
+        this.registry = new UserNodeRegistry(jdbcTemplate, nodeId);
+        this.publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(config.getPostgres().getPublishQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cluster-fanout-publisher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.published = Counter.builder("chat.cluster.fanout.messages")
+                .tag("direction", "out").tag("transport", "postgres")
+                .register(meterRegistry);
+        this.routedToUser = Counter.builder("chat.cluster.fanout.messages")
+                .tag("direction", "out-user").tag("transport", "postgres")
+                .register(meterRegistry);
+        this.received = Counter.builder("chat.cluster.fanout.messages")
+                .tag("direction", "in").tag("transport", "postgres")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("chat.cluster.fanout.dropped")
+                .tag("transport", "postgres")
+                .register(meterRegistry);
+        Gauge.builder("chat.cluster.users.remote", registry, UserNodeRegistry::remoteUsers)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        jdbcTemplate.execute("CREATE UNLOGGED TABLE IF NOT EXISTS " + SPILL_TABLE + " ("
+                + "id BIGSERIAL PRIMARY KEY, "
+                + "envelope TEXT NOT NULL, "
+                + "created_at TIMESTAMPTZ NOT NULL DEFAULT now())");
+        registry.createTables();
+        refreshMembers();
+        running = true;
+        listener = new Thread(this::listen, "cluster-fanout-listener");
+        listener.setDaemon(true);
+        listener.start();
+        long interval = config.getPostgres().getHeartbeatSeconds();
+        heartbeat.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.SECONDS);
+        log.info("Cluster fan-out over PostgreSQL channel {} started on node {}", channel, nodeId);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        heartbeat.shutdownNow();
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(2, TimeUnit.SECONDS);
+            retryRevocations();
+            retryInvalidations();
+            registry.unregisterNode();
+            notify(channel, FanoutEnvelope.nodeDown(nodeId, nodeId));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Could not unregister node {}: {}", nodeId, e.getMessage());
+        }
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    @Override
+    public void publish(String destination, byte[] payload, MimeType contentType) {
+        FanoutEnvelope envelope = FanoutEnvelope.broadcast(nodeId, destination, contentType.toString(), payload);
+        submit(() -> notify(channel, envelope));
+    }
+
+    @Override
+    public boolean hasRemoteSessions(String user) {
+        return !registry.remoteNodesOf(user).isEmpty();
+    }
+
+    @Override
+    public void publishToUser(String user, String destination, byte[] payload, MimeType contentType) {
+        Set<String> nodes = registry.remoteNodesOf(user);
+        if (nodes.isEmpty()) {
+            return;
+        }
+        FanoutEnvelope envelope = FanoutEnvelope.broadcast(nodeId, destination, contentType.toString(), payload);
+        for (String node : nodes) {
+            submit(() -> {
+                notify(nodeChannel(node), envelope);
+                routedToUser.increment();
+            });
+        }
+    }
+
+    @Override
+    public void invalidateChat(Long chatId) {
+        // Con afinidad solo el dueño cachea el chat
+        String target;
+        if (ownership.isEnabled()) {
+            String owner = ownership.ownerOf(chatId);
+            if (nodeId.equals(owner)) {
+                return;
+            }
+            target = nodeChannel(owner);
+        } else {
+            target = channel;
+        }
+        // Un aviso perdido dejaría la página 0 obsoleta en la caché de otro nodo, que no tiene TTL:
+        // se emite en el hilo que llama y si falla se reintenta en cada heartbeat
+        if (!notify(target, FanoutEnvelope.invalidation(nodeId, chatId))) {
+            pendingInvalidations.put(chatId, target);
+        }
+    }
+
+    /**
+     * Una baja perdida dejaría al usuario con acceso en las cachés de los demás nodos: se emite en el hilo
+     * que llama, sin pasar por la cola del publisher, y si falla se reintenta en cada heartbeat
+     */
+    @Override
+    public void revokeMembership(Long chatId, Long userId) {
+        FanoutEnvelope envelope = FanoutEnvelope.membershipRevoked(nodeId, chatId, userId);
+        if (!notify(channel, envelope)) {
+            pendingRevocations.add(envelope);
+        }
+    }
+
+    /**
+     * El NOTIFY se emite en el hilo que llama, sin pasar por la cola del publisher (que descarta al llenarse):
+     * si falla, el comando se ejecuta localmente en lugar de perderse
+     */
+    @Override
+    public boolean forward(String node, String command, Long userId, String user, byte[] body) {
+        return notify(nodeChannel(node), FanoutEnvelope.forward(nodeId, command, userId, user, body));
+    }
+
+    @EventListener
+    public void onSessionConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = (String) event.getMessage().getHeaders().get("simpSessionId");
+        if (user != null && sessionId != null && registry.sessionOpened(sessionId, user.getName())) {
+            announce(user.getName(), true);
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        String user = registry.sessionClosed(event.getSessionId());
+        if (user != null) {
+            announce(user, false);
+        }
+    }
+
+    /**
+     * Sin la fila del usuario los demás nodos no le enrutan sus destinos de usuario: si la cola está llena
+     * o la escritura falla, el usuario queda pendiente y se reintenta en cada heartbeat
+     */
+    private void announce(String user, boolean joined) {
+        if (!submit(() -> publishAnnouncement(user, joined))) {
+            pendingAnnouncements.add(user);
+        }
+    }
+
+    private boolean publishAnnouncement(String user, boolean joined) {
+        try {
+            registry.persist(user, joined);
+        } catch (RuntimeException e) {
+            log.warn("Could not persist user {} on node {}: {}", user, nodeId, e.getMessage());
+            pendingAnnouncements.add(user);
+            return false;
+        }
+        if (!notify(channel, joined ? FanoutEnvelope.userJoined(nodeId, user) : FanoutEnvelope.userLeft(nodeId, user))) {
+            pendingAnnouncements.add(user);
+            return false;
+        }
+        return true;
+    }
+
+    private void heartbeat() {
+        retryRevocations();
+        retryInvalidations();
+        retryAnnouncements();
+        try {
+            registry.heartbeat();
+            for (String deadNode : registry.expireDeadNodes(config.getPostgres().getNodeTimeoutSeconds())) {
+                log.warn("Cluster node {} stopped sending heartbeats, its user sessions were removed", deadNode);
+                submit(() -> notify(channel, FanoutEnvelope.nodeDown(nodeId, deadNode)));
+            }
+            refreshMembers();
+        } catch (RuntimeException e) {
+            log.warn("Cluster heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private void retryRevocations() {
+        FanoutEnvelope envelope;
+        while ((envelope = pendingRevocations.peek()) != null) {
+            if (!notify(channel, envelope)) {
+                return;
+            }
+            pendingRevocations.remove();
+        }
+    }
+
+    private void retryInvalidations() {
+        for (Map.Entry<Long, String> pending : pendingInvalidations.entrySet()) {
+            // Se quita antes de emitir: un fallo posterior del mismo chat vuelve a quedar pendiente
+            if (pendingInvalidations.remove(pending.getKey(), pending.getValue())
+                    && !notify(pending.getValue(), FanoutEnvelope.invalidation(nodeId, pending.getKey()))) {
+                pendingInvalidations.putIfAbsent(pending.getKey(), pending.getValue());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Se anuncia el estado actual del usuario, no el del intento fallido: pudo reconectarse o irse desde entonces
+     */
+    private void retryAnnouncements() {
+        for (String user : pendingAnnouncements) {
+            pendingAnnouncements.remove(user);
+            if (!publishAnnouncement(user, registry.isLocal(user))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Recalcula el anillo de afinidad con los nodos vivos. Si cambia, los chats cacheados pueden tener
+     * otro dueño y se descarta el estado local.
+     */
+    private void refreshMembers() {
+        if (!ownership.isEnabled()) {
+            return;
+        }
+        Set<String> live = new HashSet<>(registry.liveNodes(config.getPostgres().getNodeTimeoutSeconds()));
+        live.add(nodeId);
+        if (ownership.updateMembers(live)) {
+            eventPublisher.publishEvent(new RemoteChatInvalidationEvent(null));
+        }
+    }
+
+    /**
+     * Otro nodo dio por caído a este (p. ej. tras una pausa larga): se vuelven a anunciar sus usuarios
+     */
+    private void rejoin() {
+        log.warn("Node {} was declared down by the cluster, re-registering local users", nodeId);
+        registry.heartbeat();
+        for (String user : registry.localUsers()) {
+            announce(user, true);
+        }
+    }
+
+    private boolean submit(Runnable task) {
+        try {
+            publisher.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+            log.warn("Cluster fan-out queue full, event dropped");
+            return false;
+        }
+    }
+
+    private boolean notify(String targetChannel, FanoutEnvelope envelope) {
+        try {
+            String json = objectMapper.writeValueAsString(envelope);
+            if (json.getBytes(StandardCharsets.UTF_8).length > MAX_NOTIFY_BYTES) {
+                json = objectMapper.writeValueAsString(FanoutEnvelope.spilled(nodeId, spill(json)));
+            }
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", targetChannel, json);
+            published.increment();
+            return true;
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize cluster fan-out event: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            dropped.increment();
+            log.warn("Could not publish cluster fan-out event: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Canal propio de un nodo, derivado de su id para que sea un identificador válido de PostgreSQL
+     */
+    private String nodeChannel(String node) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : node.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ b) * 0x100000001b3L;
+        }
+        return channel + "_" + Long.toHexString(hash);
+    }
+
+    private Long spill(String json) {
+        if (spills.incrementAndGet() % SPILL_CLEANUP_EVERY == 0) {
+            jdbcTemplate.update("DELETE FROM " + SPILL_TABLE + " WHERE created_at < now() - interval '5 minutes'");
+        }
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO " + SPILL_TABLE + " (envelope) VALUES (?) RETURNING id", Long.class, json);
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                    statement.execute("LISTEN " + nodeChannel);
+                }
+                // Con LISTEN ya activo, los cambios posteriores a la carga llegan como avisos
+                registry.reload();
+                if (reconnecting) {
+                    // Los avisos emitidos durante la desconexión se perdieron
+                    eventPublisher.publishEvent(new RemoteChatInvalidationEvent(null));
+                    log.info("Cluster fan-out listener reconnected");
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) config.getPostgres().getPollMillis());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                reconnecting = true;
+                log.warn("Cluster fan-out listener disconnected: {}", e.getMessage());
+                try {
+                    Thread.sleep(config.getPostgres().getReconnectDelayMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handle(String json) {
+        try {
+            FanoutEnvelope envelope = objectMapper.readValue(json, FanoutEnvelope.class);
+            if (nodeId.equals(envelope.node())) {
+                return;
+            }
+            if (envelope.spillId() != null) {
+                String spilled = jdbcTemplate.queryForObject(
+                        "SELECT envelope FROM " + SPILL_TABLE + " WHERE id = ?", String.class, envelope.spillId());
+                envelope = objectMapper.readValue(spilled, FanoutEnvelope.class);
+            }
+            received.increment();
+            switch (envelope.kind()) {
+                case BROADCAST -> eventPublisher.publishEvent(new RemoteBroadcastEvent(
+                        envelope.destination(), envelope.payload(), MimeType.valueOf(envelope.contentType())));
+                case INVALIDATE -> eventPublisher.publishEvent(new RemoteChatInvalidationEvent(envelope.chatId()));
+                case MEMBERSHIP_REVOKED -> eventPublisher.publishEvent(
+                        new RemoteMembershipRevokedEvent(envelope.chatId(), envelope.userId()));
+                case USER_JOINED -> registry.joined(envelope.user(), envelope.node());
+                case USER_LEFT -> registry.left(envelope.user(), envelope.node());
+                case NODE_DOWN -> {
+                    if (nodeId.equals(envelope.targetNode())) {
+                        rejoin();
+                    } else {
+                        registry.nodeDown(envelope.targetNode());
+                    }
+                }
+                case FORWARD -> eventPublisher.publishEvent(new ForwardedChatCommandEvent(
+                        envelope.command(), envelope.userId(), envelope.user(), envelope.payload()));
+                case SPILLED -> log.warn("Ignoring nested spilled cluster fan-out event");
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Discarding unreadable cluster fan-out event: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.chat.cluster;
+
+import com.chat.config.ClusterConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bajas de miembros entre nodos en modo relay, por un topic del broker externo.
+ * Se publican y se reciben por la conexión de sistema del relay (suscripción de sistema), no por las sesiones
+ * de los clientes; {@code ChatSubscriptionInterceptor} impide que un cliente se suscriba o envíe al topic.
+ * Con el broker caído las bajas quedan pendientes y se reintentan cada chat.cluster.relay.revocation-retry-seconds.
+ * Una baja emitida justo cuando se corta la conexión de sistema puede perderse: la caché de membresía sigue
+ * desactivada en este modo y lo único afectado son las suscripciones ya abiertas en otros nodos.
+ */
+@Component
+@ConditionalOnProperty(prefix = "chat.cluster", name = "mode", havingValue = "relay")
+@Slf4j
+public class RelayMembershipRevocations implements MembershipRevocations {
+
+    /**
+     * Prefijo de los topics internos del cluster, cerrado a los clientes
+     */
+    public static final String DESTINATION_PREFIX = "/topic/cluster.";
+    static final String DESTINATION = DESTINATION_PREFIX + "membership-revoked";
+
+    private final ClusterConfig config;
+    private final StompBrokerRelayMessageHandler relay;
+    private final MessageChannel brokerChannel;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ScheduledExecutorService retries;
+    private final Queue<FanoutEnvelope> pending = new ConcurrentLinkedQueue<>();
+
+    public RelayMembershipRevocations(ClusterConfig config,
+                                      @Qualifier("stompBrokerRelayMessageHandler") AbstractBrokerMessageHandler relay,
+                                      @Qualifier("brokerChannel") MessageChannel brokerChannel,
+                                      ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher) {
+        if (!(relay instanceof StompBrokerRelayMessageHandler stompRelay)) {
+            throw new IllegalStateException("chat.cluster.mode=relay requires the STOMP broker relay");
+        }
+        this.config = config;
+        this.relay = stompRelay;
+        this.brokerChannel = brokerChannel;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "relay-revocations");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * La suscripción de sistema se registra antes de que arranque el relay, que la abre al conectarse
+     */
+    @PostConstruct
+    void start() {
+        Map<String, MessageHandler> subscriptions = new HashMap<>();
+        if (relay.getSystemSubscriptions() != null) {
+            subscriptions.putAll(relay.getSystemSubscriptions());
+        }
+        subscriptions.put(DESTINATION, this::handle);
+        relay.setSystemSubscriptions(subscriptions);
+        long interval = config.getRelay().getRevocationRetrySeconds();
+        retries.scheduleWithFixedDelay(this::retry, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        retries.shutdownNow();
+        retry();
+    }
+
+    @Override
+    public void revokeMembership(Long chatId, Long userId) {
+        FanoutEnvelope envelope = FanoutEnvelope.membershipRevoked(config.getNodeId(), chatId, userId);
+        if (!send(envelope)) {
+            pending.add(envelope);
+        }
+    }
+
+    private void retry() {
+        FanoutEnvelope envelope;
+        while ((envelope = pending.peek()) != null) {
+            if (!send(envelope)) {
+                return;
+            }
+            pending.remove();
+        }
+    }
+
+    /**
+     * Sin conexión de sistema el relay descarta en silencio lo que recibe: se comprueba antes de enviar
+     */
+    private boolean send(FanoutEnvelope envelope) {
+        if (!relay.isBrokerAvailable()) {
+            return false;
+        }
+        try {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+            accessor.setDestination(DESTINATION);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            return brokerChannel.send(MessageBuilder.createMessage(
+                    objectMapper.writeValueAsBytes(envelope), accessor.getMessageHeaders()));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not publish membership revocation through the broker relay: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void handle(Message<?> message) {
+        try {
+            FanoutEnvelope envelope = objectMapper.readValue((byte[]) message.getPayload(), FanoutEnvelope.class);
+            if (config.getNodeId().equals(envelope.node())) {
+                return;
+            }
+            eventPublisher.publishEvent(new RemoteMembershipRevokedEvent(envelope.chatId(), envelope.userId()));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Discarding unreadable membership revocation from the broker relay: {}", e.getMessage());
+        }
+    }
+}
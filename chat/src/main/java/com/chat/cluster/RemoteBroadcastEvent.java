@@ -0,0 +1,9 @@
+package com.chat.cluster;
+
+import org.springframework.util.MimeType;
+
+/**
+ * Mensaje publicado por otro nodo, a entregar en el broker local
+ */
+public record RemoteBroadcastEvent(String destination, byte[] payload, MimeType contentType) {
+}
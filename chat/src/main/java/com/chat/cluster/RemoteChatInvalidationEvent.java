@@ -0,0 +1,7 @@
+package com.chat.cluster;
+
+/**
+ * Otro nodo modificó el chat; {@code chatId} nulo significa que pudieron perderse avisos y todo el estado local es dudoso
+ */
+public record RemoteChatInvalidationEvent(Long chatId) {
+}
@@ -0,0 +1,7 @@
+package com.chat.cluster;
+
+/**
+ * En otro nodo el usuario dejó de participar en el chat
+ */
+public record RemoteMembershipRevokedEvent(Long chatId, Long userId) {
+}
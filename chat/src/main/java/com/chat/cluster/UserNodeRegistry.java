@@ -0,0 +1,174 @@
+package com.chat.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registro de en qué nodos tiene sesiones cada usuario.
+ * La tabla chat_user_nodes es la fuente de verdad; cada nodo mantiene una copia en memoria que carga al
+ * (re)conectar el listener y actualiza con los avisos USER_JOINED / USER_LEFT / NODE_DOWN.
+ * Los nodos sin latido reciente se consideran caídos y sus filas se eliminan.
+ */
+@Slf4j
+class UserNodeRegistry {
+
+    static final String USERS_TABLE = "chat_user_nodes";
+    static final String NODES_TABLE = "chat_cluster_nodes";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+
+    /**
+     * Sesiones STOMP locales por usuario
+     */
+    private final Map<String, AtomicInteger> localSessions = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionUsers = new ConcurrentHashMap<>();
+
+    /**
+     * Vista del cluster: usuario -> nodos con al menos una sesión suya
+     */
+    private final Map<String, Set<String>> userNodes = new ConcurrentHashMap<>();
+
+    UserNodeRegistry(JdbcTemplate jdbcTemplate, String nodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = nodeId;
+    }
+
+    void createTables() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + NODES_TABLE + " ("
+                + "node_id TEXT PRIMARY KEY, "
+                + "heartbeat_at TIMESTAMPTZ NOT NULL DEFAULT now())");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + USERS_TABLE + " ("
+                + "username TEXT NOT NULL, "
+                + "node_id TEXT NOT NULL, "
+                + "PRIMARY KEY (username, node_id))");
+        // Filas de una ejecución anterior de este mismo nodo
+        jdbcTemplate.update("DELETE FROM " + USERS_TABLE + " WHERE node_id = ?", nodeId);
+        heartbeat();
+    }
+
+    /**
+     * Registra una sesión local; devuelve true si es la primera del usuario en este nodo
+     */
+    boolean sessionOpened(String sessionId, String user) {
+        sessionUsers.put(sessionId, user);
+        return localSessions.computeIfAbsent(user, u -> new AtomicInteger()).incrementAndGet() == 1;
+    }
+
+    /**
+     * Quita una sesión local; devuelve el usuario si era su última sesión en este nodo
+     */
+    String sessionClosed(String sessionId) {
+        String user = sessionUsers.remove(sessionId);
+        if (user == null) {
+            return null;
+        }
+        boolean[] last = new boolean[1];
+        localSessions.computeIfPresent(user, (u, count) -> {
+            if (count.decrementAndGet() > 0) {
+                return count;
+            }
+            last[0] = true;
+            return null;
+        });
+        return last[0] ? user : null;
+    }
+
+    /**
+     * Persiste el alta o baja del usuario en este nodo (hilo publicador o reintento del heartbeat)
+     */
+    void persist(String user, boolean joined) {
+        if (joined) {
+            jdbcTemplate.update("INSERT INTO " + USERS_TABLE + " (username, node_id) VALUES (?, ?) "
+                    + "ON CONFLICT DO NOTHING", user, nodeId);
+        } else if (!localSessions.containsKey(user)) {
+            // Si volvió a conectarse mientras la baja esperaba en cola, la fila se conserva
+            jdbcTemplate.update("DELETE FROM " + USERS_TABLE + " WHERE username = ? AND node_id = ?", user, nodeId);
+        }
+    }
+
+    void reload() {
+        userNodes.clear();
+        jdbcTemplate.query("SELECT username, node_id FROM " + USERS_TABLE,
+                (RowCallbackHandler) rs -> joined(rs.getString(1), rs.getString(2)));
+        log.info("User node registry loaded: {} users with sessions on other nodes", userNodes.size());
+    }
+
+    void joined(String user, String node) {
+        if (!nodeId.equals(node)) {
+            userNodes.computeIfAbsent(user, u -> ConcurrentHashMap.newKeySet()).add(node);
+        }
+    }
+
+    void left(String user, String node) {
+        userNodes.computeIfPresent(user, (u, nodes) -> {
+            nodes.remove(node);
+            return nodes.isEmpty() ? null : nodes;
+        });
+    }
+
+    void nodeDown(String node) {
+        userNodes.replaceAll((user, nodes) -> {
+            nodes.remove(node);
+            return nodes;
+        });
+        userNodes.values().removeIf(Set::isEmpty);
+    }
+
+    /**
+     * Otros nodos donde el usuario tiene sesiones
+     */
+    Set<String> remoteNodesOf(String user) {
+        return userNodes.getOrDefault(user, Set.of());
+    }
+
+    boolean isLocal(String user) {
+        return localSessions.containsKey(user);
+    }
+
+    Set<String> localUsers() {
+        return Set.copyOf(localSessions.keySet());
+    }
+
+    int remoteUsers() {
+        return userNodes.size();
+    }
+
+    void heartbeat() {
+        jdbcTemplate.update("INSERT INTO " + NODES_TABLE + " (node_id, heartbeat_at) VALUES (?, now()) "
+                + "ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = now()", nodeId);
+    }
+
+    /**
+     * Nodos con latido en los últimos {@code timeoutSeconds}
+     */
+    List<String> liveNodes(long timeoutSeconds) {
+        return jdbcTemplate.queryForList("SELECT node_id FROM " + NODES_TABLE
+                + " WHERE heartbeat_at >= now() - make_interval(secs => ?)", String.class, timeoutSeconds);
+    }
+
+    /**
+     * Elimina los nodos sin latido en {@code timeoutSeconds} y devuelve sus ids
+     */
+    List<String> expireDeadNodes(long timeoutSeconds) {
+        List<String> dead = jdbcTemplate.queryForList("DELETE FROM " + NODES_TABLE
+                + " WHERE heartbeat_at < now() - make_interval(secs => ?) RETURNING node_id", String.class, timeoutSeconds);
+        for (String node : dead) {
+            jdbcTemplate.update("DELETE FROM " + USERS_TABLE + " WHERE node_id = ?", node);
+            nodeDown(node);
+        }
+        return dead;
+    }
+
+    void unregisterNode() {
+        jdbcTemplate.update("DELETE FROM " + USERS_TABLE + " WHERE node_id = ?", nodeId);
+        jdbcTemplate.update("DELETE FROM " + NODES_TABLE + " WHERE node_id = ?", nodeId);
+    }
+}
@@ -0,0 +1,70 @@
+package com.chat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.UUID;
+
+@Configuration
+@ConfigurationProperties(prefix = "chat.cluster")
+@Data
+public class ClusterConfig {
+    private Mode mode = Mode.LOCAL;
+    private String nodeId = UUID.randomUUID().toString();
+    private Postgres postgres = new Postgres();
+    private Relay relay = new Relay();
+    private Affinity affinity = new Affinity();
+
+    public enum Mode {
+        /**
+         * Un solo nodo: simple broker en memoria
+         */
+        LOCAL,
+        /**
+         * Simple broker por nodo, con los eventos replicados entre nodos mediante LISTEN/NOTIFY
+         */
+        POSTGRES,
+        /**
+         * Broker STOMP externo (RabbitMQ, ActiveMQ...) compartido por todos los nodos
+         */
+        RELAY
+    }
+
+    @Data
+    public static class Postgres {
+        private String channel = "chat_fanout";
+        private long pollMillis = 500;
+        private long reconnectDelayMillis = 2000;
+        private int publishQueueCapacity = 10000;
+        private long heartbeatSeconds = 10;
+        private long nodeTimeoutSeconds = 30;
+    }
+
+    @Data
+    public static class Relay {
+        private String host = "localhost";
+        private int port = 61613;
+        private String login = "guest";
+        private String passcode = "guest";
+        private String virtualHost;
+        /**
+         * Cada cuánto se reintentan las bajas de miembros que no se pudieron publicar en el broker
+         */
+        private long revocationRetrySeconds = 5;
+    }
+
+    @Data
+    public static class Affinity {
+        /**
+         * Reparte los chats entre nodos con un anillo de hash consistente (solo en modo postgres)
+         */
+        private boolean enabled = false;
+        private int virtualNodes = 160;
+        /**
+         * Hilos que ejecutan los comandos reenviados por otros nodos (cada chat usa siempre el mismo)
+         */
+        private int forwardThreads = 4;
+        private int forwardQueueCapacity = 1000;
+    }
+}
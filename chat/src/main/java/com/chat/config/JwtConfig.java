@@ -11,4 +11,30 @@ public class JwtConfig {
     private String secret;
     private Long expiration;
     private Long refreshExpiration;
+    /**
+     * Segundos que se reutiliza la comprobación de cuenta activa de un usuario autenticado por token
+     */
+    private long accountStatusCacheSeconds = 30;
+    /**
+     * Tokens ya verificados que se recuerdan hasta su expiración
+     */
+    private int verifiedCacheSize = 50_000;
+    private Revocation revocation = new Revocation();
+
+    @Data
+    public static class Revocation {
+        /**
+         * Tokens revocados y aún no expirados para los que se dimensiona el filtro de Bloom
+         */
+        private long expectedTokens = 100_000;
+        private double falsePositiveRate = 0.001;
+        /**
+         * Cada cuánto se leen las revocaciones hechas en otros nodos
+         */
+        private int syncSeconds = 5;
+        /**
+         * Cada cuánto se reconstruye el filtro sin los tokens expirados
+         */
+        private int rebuildMinutes = 60;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.chat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "chat.cache.membership")
+@Data
+public class MembershipCacheConfig {
+    /**
+     * Usuarios con sus chats en memoria; al superarse se vacía la caché
+     */
+    private int maxUsers = 200_000;
+    /**
+     * Vida máxima de una entrada: red de seguridad si una baja hecha en otro nodo no llegara a este
+     */
+    private int ttlSeconds = 60;
+}
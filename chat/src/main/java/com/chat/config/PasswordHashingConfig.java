@@ -0,0 +1,27 @@
+package com.chat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "chat.security.password")
+@Data
+public class PasswordHashingConfig {
+    /**
+     * Factor de coste de BCrypt; al subirlo los hashes existentes se regeneran en el siguiente login
+     */
+    private int strength = 10;
+    /**
+     * Hilos dedicados a BCrypt (0 = la mitad de los procesadores, mínimo 1)
+     */
+    private int threads = 0;
+    /**
+     * Operaciones en espera antes de rechazar nuevas
+     */
+    private int queueCapacity = 64;
+    /**
+     * Tiempo máximo que una request espera su turno y el cálculo del hash
+     */
+    private long waitTimeoutMs = 5000;
+}
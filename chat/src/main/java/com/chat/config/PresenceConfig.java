@@ -0,0 +1,29 @@
+package com.chat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "chat.presence")
+@Data
+public class PresenceConfig {
+    /**
+     * Cada cuánto se escriben en Postgres los cambios de estado acumulados
+     */
+    private long flushIntervalMs = 2000;
+    /**
+     * Segundos que se reutiliza la lista de observadores de un usuario (contactos y chats privados)
+     */
+    private long watchersCacheSeconds = 60;
+    /**
+     * Inactividad tras la que un usuario conectado pasa a AWAY, y después a OFFLINE
+     */
+    private int awayAfterSeconds = 300;
+    private int offlineAfterSeconds = 1800;
+    /**
+     * Resolución y tamaño de la rueda de temporizadores de inactividad (una vuelta = slots * tick)
+     */
+    private long wheelTickMs = 1000;
+    private int wheelSlots = 512;
+}
@@ -0,0 +1,20 @@
+package com.chat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "chat.cache.recent-messages")
+@Data
+public class RecentMessageCacheConfig {
+    private boolean enabled = true;
+    private int messagesPerChat = 50;
+    private long maxBytes = 64L * 1024 * 1024;
+    private Storage storage = Storage.HEAP;
+    private int arenaBytes = 32 * 1024 * 1024;
+
+    public enum Storage {
+        HEAP, OFF_HEAP
+    }
+}
@@ -0,0 +1,29 @@
+package com.chat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "chat.users.availability")
+@Data
+public class UserAvailabilityConfig {
+    /**
+     * Usuarios para los que se dimensionan los filtros de Bloom de usernames y emails
+     */
+    private long expectedUsers = 1_000_000;
+    private double falsePositiveRate = 0.01;
+    /**
+     * Cada cuánto se incorporan los usuarios registrados en otros nodos
+     */
+    private int syncSeconds = 10;
+    /**
+     * Cada sincronización vuelve a leer los usuarios modificados en esta ventana: cubre transacciones que
+     * confirman tarde y la diferencia de reloj entre nodos (insertar dos veces en el filtro no cambia nada)
+     */
+    private int syncOverlapSeconds = 120;
+    /**
+     * Cada cuánto se reconstruyen los filtros (descarta usernames y emails que ya se cambiaron)
+     */
+    private int rebuildMinutes = 360;
+}
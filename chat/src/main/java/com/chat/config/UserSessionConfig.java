@@ -0,0 +1,19 @@
+package com.chat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "chat.sessions")
+@Data
+public class UserSessionConfig {
+    /**
+     * Cada cuánto se escribe en Mongo el lastActivity de los dispositivos con actividad reciente
+     */
+    private int activityFlushSeconds = 60;
+    /**
+     * Actualizaciones por operación bulk
+     */
+    private int activityBatchSize = 1000;
+}
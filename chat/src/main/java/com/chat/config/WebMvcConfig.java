@@ -0,0 +1,18 @@
+package com.chat.config;
+
+import com.chat.websocket.BroadcastPayloadHttpMessageConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Antes que Jackson, para que los payloads ya serializados no se vuelvan a codificar
+        converters.add(0, new BroadcastPayloadHttpMessageConverter());
+    }
+}
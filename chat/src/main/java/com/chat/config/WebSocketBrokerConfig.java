@@ -0,0 +1,33 @@
+package com.chat.config;
+
+import com.chat.websocket.OutboundBufferMetrics;
+import com.chat.websocket.SlowConsumerSubProtocolWebSocketHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+
+/**
+ * Sustituye a {@code @EnableWebSocketMessageBroker}: la configuración sigue en {@link WebSocketConfig}, y aquí
+ * solo se cambia el handler de sesiones para aplicar la política de clientes lentos sobre el buffer de Spring.
+ */
+@Configuration
+public class WebSocketBrokerConfig extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    private final WebSocketTransportConfig transportConfig;
+    private final OutboundBufferMetrics outboundBufferMetrics;
+
+    public WebSocketBrokerConfig(WebSocketTransportConfig transportConfig, OutboundBufferMetrics outboundBufferMetrics) {
+        this.transportConfig = transportConfig;
+        this.outboundBufferMetrics = outboundBufferMetrics;
+    }
+
+    @Bean
+    @Override
+    public WebSocketHandler subProtocolWebSocketHandler(AbstractSubscribableChannel clientInboundChannel,
+                                                       AbstractSubscribableChannel clientOutboundChannel) {
+        return new SlowConsumerSubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel,
+                transportConfig.getOutbound(), outboundBufferMetrics);
+    }
+}
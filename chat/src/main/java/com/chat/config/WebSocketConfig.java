@@ -1,13 +1,35 @@
 package com.chat.config;
 
+import com.chat.model.postgres.User;
+import com.chat.module.auth.repository.UserRepository;
+import com.chat.security.ChatPrincipal;
 import com.chat.security.JwtTokenProvider;
+import com.chat.security.TokenRevocationList;
+import com.chat.security.VerifiedToken;
+import com.chat.websocket.ChatSubscriptionInterceptor;
+import com.chat.websocket.CompressionMetricsWebSocketHandlerDecorator;
+import com.chat.websocket.EventBatchSubscriptionInterceptor;
+import com.chat.websocket.EventBatcher;
+import com.chat.websocket.PresenceActivityInterceptor;
+import com.chat.websocket.SessionWireFormats;
+import com.chat.websocket.WebSocketCompressionMetrics;
+import com.chat.websocket.WireFormat;
+import com.chat.websocket.WireFormatCodec;
+import com.chat.websocket.WireFormatHandshakeInterceptor;
+import com.chat.websocket.WireFormatInboundInterceptor;
+import com.chat.websocket.WireFormatOutboundInterceptor;
+import com.chat.websocket.WireFormatWebSocketHandlerDecorator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.messaging.simp.stomp.StompCommand;
@@ -15,27 +37,65 @@ import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.List;
 
 @Configuration
-@EnableWebSocketMessageBroker
 @Order(Ordered.HIGHEST_PRECEDENCE + 99)
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final JwtTokenProvider tokenProvider;
-    private final UserDetailsService userDetailsService;
+    private final TokenRevocationList tokenRevocationList;
+    private final UserRepository userRepository;
+    private final WebSocketTransportConfig transportConfig;
+    private final ClusterConfig clusterConfig;
+    private final SessionWireFormats sessionWireFormats;
+    private final WireFormatCodec wireFormatCodec;
+    private final WireFormatInboundInterceptor wireFormatInboundInterceptor;
+    private final WireFormatOutboundInterceptor wireFormatOutboundInterceptor;
+    private final WebSocketCompressionMetrics compressionMetrics;
+    private final EventBatcher eventBatcher;
+    private final EventBatchSubscriptionInterceptor eventBatchSubscriptionInterceptor;
+    private final ChatSubscriptionInterceptor chatSubscriptionInterceptor;
+    private final PresenceActivityInterceptor presenceActivityInterceptor;
+    private final Environment environment;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        if (clusterConfig.getMode() == ClusterConfig.Mode.RELAY) {
+            // Broker externo compartido: suscripciones y sesiones de usuario visibles desde todos los nodos
+            ClusterConfig.Relay relay = clusterConfig.getRelay();
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relay.getHost())
+                    .setRelayPort(relay.getPort())
+                    .setClientLogin(relay.getLogin())
+                    .setClientPasscode(relay.getPasscode())
+                    .setSystemLogin(relay.getLogin())
+                    .setSystemPasscode(relay.getPasscode())
+                    .setVirtualHost(relay.getVirtualHost())
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+        } else {
+            config.enableSimpleBroker("/topic", "/queue");
+        }
+
+        // Sin un pool acotado, el orden de entrega por sesión ya no lo garantiza el número de hilos
+        if (virtualThreads()) {
+            config.setPreservePublishOrder(true);
+        }
         
+        // Destinos separados por puntos (/topic/chat.{id}.typing): RabbitMQ no admite /topic/a/b
+        config.setPathMatcher(new AntPathMatcher("."));
+
         config.setApplicationDestinationPrefixes("/app");
         
         config.setUserDestinationPrefix("/user");
@@ -43,10 +103,62 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        if (virtualThreads()) {
+            registry.setPreserveReceiveOrder(true);
+        }
+
         // Endpoint de conexión WebSocket
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+
+        // Endpoint WebSocket nativo con payloads CBOR, sin el framing de SockJS
+        if (transportConfig.getBinary().isEnabled()) {
+            registry.addEndpoint("/ws-binary")
+                    .setAllowedOriginPatterns("*")
+                    .addInterceptors(new WireFormatHandshakeInterceptor(WireFormat.CBOR));
+        }
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        WebSocketTransportConfig.Outbound outbound = transportConfig.getOutbound();
+        registration.setSendTimeLimit(outbound.getSendTimeLimitMs());
+        // Límites del buffer por sesión de SlowConsumerSubProtocolWebSocketHandler (ver WebSocketBrokerConfig)
+        registration.setSendBufferSizeLimit(outbound.getBufferSizeLimitBytes());
+
+        // permessage-deflate lo negocia Tomcat; PerMessageDeflateFilter aplica chat.websocket.compression
+        registration.addDecoratorFactory(handler -> new CompressionMetricsWebSocketHandlerDecorator(handler, compressionMetrics));
+        registration.addDecoratorFactory(handler -> new WireFormatWebSocketHandlerDecorator(handler, sessionWireFormats));
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(wireFormatCodec.cborMessageConverter());
+        return true;
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // El batch agrupa los cuerpos JSON originales; la recodificación a CBOR se aplica después al frame agrupado
+        registration.interceptors(eventBatcher, wireFormatOutboundInterceptor);
+        if (virtualThreads()) {
+            registration.executor(virtualThreadExecutor("ws-outbound-"));
+        }
+    }
+
+    /**
+     * Con spring.threads.virtual.enabled los canales usan un hilo virtual por mensaje, igual que Tomcat:
+     * los handlers STOMP bloquean en Postgres/Mongo sin agotar un pool pequeño de hilos de plataforma
+     */
+    private boolean virtualThreads() {
+        return Threading.VIRTUAL.isActive(environment);
+    }
+
+    private SimpleAsyncTaskExecutor virtualThreadExecutor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        return executor;
     }
 
     @Override
@@ -62,19 +174,29 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                     if (authToken != null && authToken.startsWith("Bearer ")) {
                         String token = authToken.substring(7);
                         
-                        if (tokenProvider.validateToken(token)) {
-                            String username = tokenProvider.getUsernameFromToken(token);
-                            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                        VerifiedToken verified = tokenProvider.verify(token).orElse(null);
+                        // Solo access tokens: un refresh token no abre sesiones STOMP
+                        if (verified != null && !verified.isRefreshToken()
+                                && !tokenRevocationList.isRevoked(verified)) {
+                            String username = verified.username();
+                            User user = userRepository.findByUsernameOrEmail(username, username)
+                                    .orElseThrow(() -> new UsernameNotFoundException(
+                                            "User not found with username or email: " + username));
                             
+                            // Principal de la sesión: los handlers leen el userId de aquí, sin consultar la base de datos
                             UsernamePasswordAuthenticationToken authentication = 
                                 new UsernamePasswordAuthenticationToken(
-                                    userDetails, 
+                                    ChatPrincipal.of(user), 
                                     null, 
-                                    userDetails.getAuthorities()
+                                    List.of(new SimpleGrantedAuthority("ROLE_USER"))
                                 );
                             
                             SecurityContextHolder.getContext().setAuthentication(authentication);
                             accessor.setUser(authentication);
+                            if (verified.deviceId() != null && accessor.getSessionAttributes() != null) {
+                                accessor.getSessionAttributes().put(PresenceActivityInterceptor.DEVICE_ID_ATTRIBUTE,
+                                        verified.deviceId());
+                            }
                             
                             log.info("WebSocket authenticated user: {}", username);
                         }
@@ -83,6 +205,11 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 
                 return message;
             }
-        });
+        }, chatSubscriptionInterceptor, wireFormatInboundInterceptor, eventBatchSubscriptionInterceptor,
+                presenceActivityInterceptor);
+
+        if (virtualThreads()) {
+            registration.executor(virtualThreadExecutor("ws-inbound-"));
+        }
     }
 }
@@ -1,5 +1,7 @@
 package com.chat.config;
 
+import com.chat.module.presence.service.PresenceRegistry;
+import com.chat.security.ChatPrincipal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
@@ -13,6 +15,8 @@ import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 @Slf4j
 public class WebSocketEventListener {
 
+    private final PresenceRegistry presenceRegistry;
+
     /**
      * Maneja el evento cuando un usuario se conecta
      */
@@ -22,6 +26,11 @@ public class WebSocketEventListener {
         String sessionId = headerAccessor.getSessionId();
         
         log.info("New WebSocket connection established - Session ID: {}", sessionId);
+
+        if (event.getUser() != null && sessionId != null) {
+            ChatPrincipal principal = ChatPrincipal.from(event.getUser());
+            presenceRegistry.sessionOpened(sessionId, principal.userId(), principal.username());
+        }
     }
 
     /**
@@ -33,6 +42,7 @@ public class WebSocketEventListener {
         String sessionId = headerAccessor.getSessionId();
         
         log.info("WebSocket connection closed - Session ID: {}", sessionId);
-        
+
+        presenceRegistry.sessionClosed(sessionId);
     }
 }
@@ -0,0 +1,81 @@
+package com.chat.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "chat.websocket")
+@Data
+public class WebSocketTransportConfig {
+    private Binary binary = new Binary();
+    private Compression compression = new Compression();
+    private Outbound outbound = new Outbound();
+    private Batch batch = new Batch();
+
+    @Data
+    public static class Binary {
+        /**
+         * Expone /ws-binary: WebSocket sin SockJS con payloads STOMP en CBOR
+         */
+        private boolean enabled = true;
+    }
+
+    @Data
+    public static class Compression {
+        /**
+         * Acepta permessage-deflate cuando el cliente lo ofrece en el handshake
+         */
+        private boolean enabled = true;
+        /**
+         * Con false se negocia server_no_context_takeover: menos memoria por conexión y peor compresión
+         */
+        private boolean contextTakeover = true;
+        /**
+         * Fracción de frames salientes que se comprimen aparte para medir ratio y coste de CPU
+         */
+        private double metricsSampleRate = 0.01;
+    }
+
+    @Data
+    public static class Outbound {
+        /**
+         * Tiempo máximo de un envío bloqueado antes de cerrar la sesión
+         */
+        private int sendTimeLimitMs = 10_000;
+        /**
+         * Bytes pendientes de envío por sesión antes de cerrarla
+         */
+        private int bufferSizeLimitBytes = 512 * 1024;
+        /**
+         * A partir de estos bytes pendientes se descartan los frames de baja prioridad
+         */
+        private int dropLowPriorityAboveBytes = 64 * 1024;
+        /**
+         * ...o cuando un envío lleva bloqueado este tiempo
+         */
+        private int dropLowPriorityAfterMs = 1000;
+        /**
+         * Destinos prescindibles bajo congestión (patrones Ant)
+         */
+        private List<String> lowPriorityDestinations = new ArrayList<>(List.of(
+                "/topic/chat.*.typing",
+                "/topic/presence/**",
+                "/user/queue/presence"));
+    }
+
+    @Data
+    public static class Batch {
+        /**
+         * Permite que un cliente pida sus eventos agrupados suscribiéndose a {@code destination}
+         */
+        private boolean enabled = true;
+        private String destination = "/user/queue/batch";
+        private int windowMs = 20;
+        private int maxEvents = 50;
+        private int maxBytes = 64 * 1024;
+    }
+}
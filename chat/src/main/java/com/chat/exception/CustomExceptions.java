@@ -32,6 +32,12 @@ public class CustomExceptions {
         }
     }
 
+    public static class ServiceUnavailableException extends RuntimeException {
+        public ServiceUnavailableException(String message) {
+            super(message);
+        }
+    }
+
     public static class InternalServerErrorException extends RuntimeException {
         public InternalServerErrorException(String message) {
             super(message);
@@ -0,0 +1,43 @@
+package com.chat.model.mongo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro append-only de cambios sobre mensajes, usado para la sincronización incremental.
+ * La secuencia es propia de cada chat, densa y creciente, y sirve como cursor.
+ */
+@Document(collection = "message_changes")
+@CompoundIndex(name = "chat_sequence_idx", def = "{'chatId': 1, 'sequence': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageChange {
+
+    @Id
+    private String id;
+
+    private Long chatId;
+
+    private Long sequence;
+
+    private String messageId;
+
+    private ChangeType changeType;
+
+    private Long actorId;
+
+    @Indexed(expireAfterSeconds = 604800)
+    private LocalDateTime changedAt;
+
+    public enum ChangeType {
+        CREATED, EDITED, DELETED, REACTION
+    }
+}
@@ -0,0 +1,22 @@
+package com.chat.model.mongo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Último número de secuencia asignado a los cambios de un chat (se incrementa con $inc)
+ */
+@Document(collection = "message_change_sequences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageChangeSequence {
+
+    @Id
+    private Long chatId;
+
+    private long sequence;
+}
@@ -79,11 +79,17 @@ public class AuthController {
     @PostMapping("/logout")
     public ResponseEntity<Map<String, String>> logout(
             @RequestParam Long userId,
-            @RequestParam(required = false) String deviceId) {
+            @RequestParam(required = false) String deviceId,
+            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestBody(required = false) RefreshTokenRequest refreshTokenRequest) {
         log.info("Logout request received for user: {}", userId);
         
         try {
-            authService.logout(userId, deviceId);
+            // Los tokens presentados quedan revocados hasta su expiración
+            String accessToken = authHeader != null && authHeader.startsWith("Bearer ")
+                    ? authHeader.substring(7) : null;
+            String refreshToken = refreshTokenRequest != null ? refreshTokenRequest.getRefreshToken() : null;
+            authService.logout(userId, deviceId, accessToken, refreshToken);
             
             Map<String, String> response = new HashMap<>();
             response.put("message", "Logged out successfully");
@@ -95,6 +101,17 @@ public class AuthController {
         }
     }
 
+    /**
+     * Endpoint para comprobar si un username y/o email están libres
+     * GET /api/auth/availability?username=...&email=...
+     */
+    @GetMapping("/availability")
+    public ResponseEntity<Map<String, Boolean>> availability(
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String email) {
+        return ResponseEntity.ok(authService.checkAvailability(username, email));
+    }
+
     /**
      * Endpoint para verificar si el token es válido
      * GET /api/auth/validate-token
@@ -5,11 +5,11 @@ import com.chat.module.auth.dto.ChangePasswordRequest;
 import com.chat.module.auth.dto.UpdateProfileRequest;
 import com.chat.module.auth.dto.UserResponse;
 import com.chat.module.auth.service.UserService;
+import com.chat.security.ChatPrincipal;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
@@ -26,18 +26,24 @@ public class UserController {
 
     private final UserService userService;
 
+    /**
+     * Usuario autenticado, armado por el filtro JWT con los claims del token
+     */
+    private ChatPrincipal getCurrentPrincipal() {
+        return ChatPrincipal.from(SecurityContextHolder.getContext().getAuthentication());
+    }
+
     /**
      * Obtiene el perfil del usuario autenticado
      * GET /api/users/me
      */
     @GetMapping("/me")
     public ResponseEntity<UserResponse> getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
+        ChatPrincipal principal = getCurrentPrincipal();
         
-        log.info("Getting current user profile: {}", username);
+        log.info("Getting current user profile: {}", principal.username());
         
-        UserResponse response = userService.getUserByUsername(username);
+        UserResponse response = userService.getUserById(principal.userId());
         return ResponseEntity.ok(response);
     }
 
@@ -84,14 +90,12 @@ public class UserController {
     @PutMapping("/me")
     public ResponseEntity<UserResponse> updateProfile(
             @Valid @RequestBody UpdateProfileRequest request) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
+        ChatPrincipal principal = getCurrentPrincipal();
+        String username = principal.username();
         
         log.info("Updating profile for user: {}", username);
         
-        // Obtener el ID del usuario autenticado
-        UserResponse currentUser = userService.getUserByUsername(username);
-        UserResponse response = userService.updateProfile(currentUser.getId(), request);
+        UserResponse response = userService.updateProfile(principal.userId(), request);
         
         return ResponseEntity.ok(response);
     }
@@ -103,14 +107,12 @@ public class UserController {
     @PutMapping("/me/password")
     public ResponseEntity<Map<String, String>> changePassword(
             @Valid @RequestBody ChangePasswordRequest request) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
+        ChatPrincipal principal = getCurrentPrincipal();
+        String username = principal.username();
         
         log.info("Changing password for user: {}", username);
         
-        // Obtener el ID del usuario autenticado
-        UserResponse currentUser = userService.getUserByUsername(username);
-        userService.changePassword(currentUser.getId(), request);
+        userService.changePassword(principal.userId(), request);
         
         Map<String, String> response = new HashMap<>();
         response.put("message", "Password changed successfully");
@@ -125,15 +127,14 @@ public class UserController {
     @PatchMapping("/me/status")
     public ResponseEntity<Map<String, String>> updateStatus(
             @RequestParam String status) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
+        ChatPrincipal principal = getCurrentPrincipal();
+        String username = principal.username();
         
         log.info("Updating status for user: {} to {}", username, status);
         
         try {
             User.UserStatus userStatus = User.UserStatus.valueOf(status.toUpperCase());
-            UserResponse currentUser = userService.getUserByUsername(username);
-            userService.updateUserStatus(currentUser.getId(), userStatus);
+            userService.updateUserStatus(principal.userId(), userStatus);
             
             Map<String, String> response = new HashMap<>();
             response.put("message", "Status updated successfully");
@@ -152,13 +153,12 @@ public class UserController {
     @PatchMapping("/me/profile-picture")
     public ResponseEntity<Map<String, String>> updateProfilePicture(
             @RequestParam String pictureUrl) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
+        ChatPrincipal principal = getCurrentPrincipal();
+        String username = principal.username();
         
         log.info("Updating profile picture for user: {}", username);
         
-        UserResponse currentUser = userService.getUserByUsername(username);
-        userService.updateProfilePicture(currentUser.getId(), pictureUrl);
+        userService.updateProfilePicture(principal.userId(), pictureUrl);
         
         Map<String, String> response = new HashMap<>();
         response.put("message", "Profile picture updated successfully");
@@ -173,13 +173,12 @@ public class UserController {
      */
     @DeleteMapping("/me")
     public ResponseEntity<Map<String, String>> deactivateAccount() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
+        ChatPrincipal principal = getCurrentPrincipal();
+        String username = principal.username();
         
         log.info("Deactivating account for user: {}", username);
         
-        UserResponse currentUser = userService.getUserByUsername(username);
-        userService.deactivateAccount(currentUser.getId());
+        userService.deactivateAccount(principal.userId());
         
         Map<String, String> response = new HashMap<>();
         response.put("message", "Account deactivated successfully");
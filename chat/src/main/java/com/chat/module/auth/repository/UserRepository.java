@@ -1,13 +1,16 @@
 package com.chat.module.auth.repository;
 
 import com.chat.model.postgres.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -23,13 +26,40 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     Boolean existsByEmail(String email);
     
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.updatedAt AS updatedAt FROM User u "
+            + "WHERE u.id > :afterId ORDER BY u.id")
+    List<UserIdentity> findIdentitiesAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email, u.updatedAt AS updatedAt FROM User u "
+            + "WHERE u.updatedAt > :since OR (u.updatedAt = :since AND u.id > :afterId) ORDER BY u.updatedAt, u.id")
+    List<UserIdentity> findIdentitiesChangedSince(@Param("since") LocalDateTime since,
+                                                  @Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT u.isActive FROM User u WHERE u.id = :userId")
+    Optional<Boolean> findIsActiveById(@Param("userId") Long userId);
+    
     @Modifying
+    @Transactional
     @Query("UPDATE User u SET u.status = :status, u.lastSeen = :lastSeen WHERE u.id = :userId")
     void updateUserStatus(@Param("userId") Long userId, 
                         @Param("status") User.UserStatus status, 
                         @Param("lastSeen") LocalDateTime lastSeen);
     
+    @Modifying
+    @Query("UPDATE User u SET u.passwordHash = :passwordHash WHERE u.username = :username")
+    void updatePasswordHash(@Param("username") String username, @Param("passwordHash") String passwordHash);
+    
     @Modifying
     @Query("UPDATE User u SET u.profilePictureUrl = :url WHERE u.id = :userId")
     void updateProfilePicture(@Param("userId") Long userId, @Param("url") String url);
+    
+    interface UserIdentity {
+        Long getId();
+        
+        String getUsername();
+        
+        String getEmail();
+        
+        LocalDateTime getUpdatedAt();
+    }
 }
\ No newline at end of file
@@ -1,14 +1,18 @@
 package com.chat.module.auth.service;
 
 import com.chat.config.JwtConfig;
-import com.chat.model.mongo.UserSession;
+import com.chat.exception.CustomExceptions;
 import com.chat.model.postgres.User;
 import com.chat.module.auth.dto.*;
 import com.chat.module.auth.repository.UserRepository;
 import com.chat.module.auth.repository.UserSessionMongoRepository;
+import com.chat.security.ChatUserDetails;
 import com.chat.security.JwtTokenProvider;
+import com.chat.security.TokenRevocationList;
+import com.chat.security.VerifiedToken;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -18,6 +22,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -26,8 +32,11 @@ public class AuthService {
 
     private final UserRepository userRepository;
     private final UserSessionMongoRepository userSessionMongoRepository;
+    private final UserSessionWriter userSessionWriter;
+    private final UserAvailabilityFilter userAvailabilityFilter;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider tokenProvider;
+    private final TokenRevocationList tokenRevocationList;
     private final AuthenticationManager authenticationManager;
     private final JwtConfig jwtConfig;
 
@@ -35,12 +44,13 @@ public class AuthService {
     public AuthResponse register(RegisterRequest request) {
         log.info("Registering new user: {}", request.getUsername());
 
-        if (userRepository.existsByUsername(request.getUsername())) {
-            throw new RuntimeException("Username already exists");
+        // Con los filtros de Bloom la mayoría de los registros no consulta la base de datos aquí
+        if (userAvailabilityFilter.isUsernameTaken(request.getUsername())) {
+            throw new CustomExceptions.ConflictException("Username already exists");
         }
 
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new RuntimeException("Email already exists");
+        if (userAvailabilityFilter.isEmailTaken(request.getEmail())) {
+            throw new CustomExceptions.ConflictException("Email already exists");
         }
 
         User user = new User();
@@ -52,10 +62,15 @@ public class AuthService {
         user.setStatus(User.UserStatus.OFFLINE);
         user.setIsActive(true);
 
-        user = userRepository.save(user);
+        try {
+            user = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw userAvailabilityFilter.conflict(e);
+        }
+        userAvailabilityFilter.record(user);
 
-        String accessToken = tokenProvider.generateToken(user.getUsername());
-        String refreshToken = tokenProvider.generateRefreshToken(user.getUsername());
+        String accessToken = tokenProvider.generateToken(user, null);
+        String refreshToken = tokenProvider.generateRefreshToken(user, null);
 
         log.info("User registered successfully: {}", user.getUsername());
 
@@ -71,7 +86,25 @@ public class AuthService {
                 .build();
     }
 
-    @Transactional
+    /**
+     * Disponibilidad de username y/o email para el formulario de registro (los parámetros nulos se omiten)
+     */
+    public Map<String, Boolean> checkAvailability(String username, String email) {
+        Map<String, Boolean> availability = new HashMap<>();
+        if (username != null) {
+            availability.put("username", !userAvailabilityFilter.isUsernameTaken(username));
+        }
+        if (email != null) {
+            availability.put("email", !userAvailabilityFilter.isEmailTaken(email));
+        }
+        return availability;
+    }
+
+    /**
+     * Sin transacción propia: la conexión no queda retenida mientras se calcula BCrypt.
+     * El usuario es el que cargó el AuthenticationManager, el estado se escribe con un UPDATE puntual
+     * y la sesión del dispositivo se guarda en Mongo fuera del camino de la respuesta.
+     */
     public AuthResponse login(LoginRequest request) {
         log.info("User attempting to login: {}", request.getUsernameOrEmail());
 
@@ -84,21 +117,19 @@ public class AuthService {
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
-        User user = userRepository.findByUsernameOrEmail(
-                request.getUsernameOrEmail(),
-                request.getUsernameOrEmail()
-        ).orElseThrow(() -> new RuntimeException("User not found"));
+        User user = authentication.getPrincipal() instanceof ChatUserDetails details
+                ? details.getAccount()
+                : userRepository.findByUsernameOrEmail(request.getUsernameOrEmail(), request.getUsernameOrEmail())
+                        .orElseThrow(() -> new RuntimeException("User not found"));
 
-        user.setStatus(User.UserStatus.ONLINE);
-        user.setLastSeen(LocalDateTime.now());
-        userRepository.save(user);
+        userRepository.updateUserStatus(user.getId(), User.UserStatus.ONLINE, LocalDateTime.now());
 
         if (request.getDeviceId() != null) {
-            createUserSession(user.getId(), request);
+            userSessionWriter.create(user.getId(), request);
         }
 
-        String accessToken = tokenProvider.generateToken(authentication);
-        String refreshToken = tokenProvider.generateRefreshToken(user.getUsername());
+        String accessToken = tokenProvider.generateToken(user, request.getDeviceId());
+        String refreshToken = tokenProvider.generateRefreshToken(user, request.getDeviceId());
 
         log.info("User logged in successfully: {}", user.getUsername());
 
@@ -114,22 +145,31 @@ public class AuthService {
                 .build();
     }
 
+    /**
+     * Rota el refresh token: el presentado se revoca y se emite uno nuevo junto al access token.
+     * Un refresh token ya rotado que vuelve a llegar indica que fue robado y se rechaza.
+     */
     public AuthResponse refreshToken(RefreshTokenRequest request) {
-        String refreshToken = request.getRefreshToken();
+        VerifiedToken token = tokenProvider.verify(request.getRefreshToken())
+                .filter(VerifiedToken::isRefreshToken)
+                .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
 
-        if (!tokenProvider.validateToken(refreshToken)) {
+        if (token.tokenId() != null && !tokenRevocationList.revoke(token)) {
+            log.warn("Reuse of rotated refresh token {} for user {}", token.tokenId(), token.username());
             throw new RuntimeException("Invalid refresh token");
         }
 
-        String username = tokenProvider.getUsernameFromToken(refreshToken);
-        User user = userRepository.findByUsername(username)
+        User user = (token.userId() != null
+                ? userRepository.findById(token.userId())
+                : userRepository.findByUsername(token.username()))
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        String newAccessToken = tokenProvider.generateToken(username);
+        String newAccessToken = tokenProvider.generateToken(user, token.deviceId());
+        String newRefreshToken = tokenProvider.generateRefreshToken(user, token.deviceId());
 
         return AuthResponse.builder()
                 .accessToken(newAccessToken)
-                .refreshToken(refreshToken)
+                .refreshToken(newRefreshToken)
                 .tokenType("Bearer")
                 .userId(user.getId())
                 .username(user.getUsername())
@@ -139,10 +179,16 @@ public class AuthService {
                 .build();
     }
 
+    /**
+     * Cierra la sesión y revoca los tokens presentados (cualquiera de los dos puede ser nulo)
+     */
     @Transactional
-    public void logout(Long userId, String deviceId) {
+    public void logout(Long userId, String deviceId, String accessToken, String refreshToken) {
         log.info("User logging out: {}", userId);
 
+        revoke(accessToken);
+        revoke(refreshToken);
+
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
@@ -159,16 +205,10 @@ public class AuthService {
         log.info("User logged out successfully: {}", userId);
     }
 
-    private void createUserSession(Long userId, LoginRequest request) {
-        UserSession session = new UserSession();
-        session.setUserId(userId);
-        session.setDeviceId(request.getDeviceId());
-        session.setDeviceType(request.getDeviceType());
-        session.setFcmToken(request.getFcmToken());
-        session.setLastActivity(LocalDateTime.now());
-        session.setIsActive(true);
-
-        userSessionMongoRepository.save(session);
-        log.info("User session created for device: {}", request.getDeviceId());
+    private void revoke(String token) {
+        if (token != null) {
+            tokenProvider.verify(token).ifPresent(tokenRevocationList::revoke);
+        }
     }
+
 }
@@ -0,0 +1,226 @@
+package com.chat.module.auth.service;
+
+import com.chat.config.UserAvailabilityConfig;
+import com.chat.exception.CustomExceptions;
+import com.chat.exception.GlobalExceptionHandler;
+import com.chat.model.postgres.User;
+import com.chat.module.auth.repository.UserRepository;
+import com.chat.security.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtros de Bloom con los usernames y emails registrados. Un negativo significa "libre" sin consultar la
+ * base de datos; un positivo se confirma con existsBy*. Las restricciones unique siguen siendo el árbitro final:
+ * un usuario registrado en otro nodo entre dos sincronizaciones se detecta al insertar ({@link #conflict}).
+ * La sincronización lee los usuarios por updated_at, así que incorpora tanto los registros como los cambios
+ * de username o email hechos en otros nodos.
+ * Mientras se construyen los filtros al arrancar todas las comprobaciones van a la base de datos.
+ */
+@Component
+@Slf4j
+public class UserAvailabilityFilter {
+
+    private static final int PAGE_SIZE = 5000;
+
+    private final UserRepository userRepository;
+    private final UserAvailabilityConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final Counter usernameNegatives;
+    private final Counter usernamePositives;
+    private final Counter emailNegatives;
+    private final Counter emailPositives;
+
+    private volatile Filters filters;
+    /**
+     * Filtros en construcción: {@link #record} escribe también en ellos para no perder cambios durante la carga
+     */
+    private volatile Filters building;
+
+    public UserAvailabilityFilter(UserRepository userRepository, UserAvailabilityConfig config,
+                                  MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.config = config;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-availability-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.usernameNegatives = Counter.builder("chat.users.availability.checks")
+                .tag("field", "username").tag("result", "bloom-negative")
+                .register(meterRegistry);
+        this.usernamePositives = Counter.builder("chat.users.availability.checks")
+                .tag("field", "username").tag("result", "database")
+                .register(meterRegistry);
+        this.emailNegatives = Counter.builder("chat.users.availability.checks")
+                .tag("field", "email").tag("result", "bloom-negative")
+                .register(meterRegistry);
+        this.emailPositives = Counter.builder("chat.users.availability.checks")
+                .tag("field", "email").tag("result", "database")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        // La carga inicial no retrasa el arranque
+        scheduler.execute(this::rebuildSafely);
+        scheduler.scheduleWithFixedDelay(this::syncSafely,
+                config.getSyncSeconds(), config.getSyncSeconds(), TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::rebuildSafely,
+                config.getRebuildMinutes(), config.getRebuildMinutes(), TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isUsernameTaken(String username) {
+        Filters current = filters;
+        if (current != null && !current.usernames.mightContain(username)) {
+            usernameNegatives.increment();
+            return false;
+        }
+        usernamePositives.increment();
+        return Boolean.TRUE.equals(userRepository.existsByUsername(username));
+    }
+
+    public boolean isEmailTaken(String email) {
+        Filters current = filters;
+        if (current != null && !current.emails.mightContain(email)) {
+            emailNegatives.increment();
+            return false;
+        }
+        emailPositives.increment();
+        return Boolean.TRUE.equals(userRepository.existsByEmail(email));
+    }
+
+    /**
+     * Registra el username y el email de un usuario creado o modificado en este nodo
+     */
+    public void record(User user) {
+        // building se lee antes que filters: si ya es null, filters ya apunta a los filtros reconstruidos
+        Filters pending = building;
+        Filters current = filters;
+        if (pending != null) {
+            pending.put(user.getUsername(), user.getEmail());
+        }
+        if (current != null) {
+            current.put(user.getUsername(), user.getEmail());
+        }
+    }
+
+    /**
+     * Traduce la violación de una restricción unique de users en un conflicto legible; cualquier otra
+     * violación se devuelve sin cambios
+     */
+    public RuntimeException conflict(DataIntegrityViolationException e) {
+        if (!GlobalExceptionHandler.isUniqueViolation(e)) {
+            return e;
+        }
+        String detail = String.valueOf(e.getMostSpecificCause().getMessage());
+        if (detail.contains("(username)")) {
+            return new CustomExceptions.ConflictException("Username already exists");
+        }
+        if (detail.contains("(email)")) {
+            return new CustomExceptions.ConflictException("Email already exists");
+        }
+        return new CustomExceptions.ConflictException("Username or email already exists");
+    }
+
+    private void rebuild() {
+        Filters rebuilt = new Filters(new BloomFilter(config.getExpectedUsers(), config.getFalsePositiveRate()),
+                new BloomFilter(config.getExpectedUsers(), config.getFalsePositiveRate()));
+        // Lo modificado durante la carga en otros nodos lo recoge la siguiente sincronización
+        rebuilt.syncedUntil = LocalDateTime.now();
+        building = rebuilt;
+        try {
+            long lastId = 0L;
+            List<UserRepository.UserIdentity> page;
+            do {
+                page = userRepository.findIdentitiesAfter(lastId, PageRequest.of(0, PAGE_SIZE));
+                for (UserRepository.UserIdentity identity : page) {
+                    rebuilt.put(identity.getUsername(), identity.getEmail());
+                    lastId = identity.getId();
+                }
+            } while (page.size() == PAGE_SIZE);
+            filters = rebuilt;
+            log.info("User availability filters rebuilt up to user id {}", lastId);
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * Incorpora los usuarios creados o modificados (username, email) en cualquier nodo desde la última
+     * sincronización, releyendo una ventana hacia atrás
+     */
+    private void sync() {
+        Filters current = filters;
+        if (current == null) {
+            return;
+        }
+        LocalDateTime since = current.syncedUntil.minusSeconds(config.getSyncOverlapSeconds());
+        long afterId = 0L;
+        List<UserRepository.UserIdentity> page;
+        do {
+            page = userRepository.findIdentitiesChangedSince(since, afterId, PageRequest.of(0, PAGE_SIZE));
+            for (UserRepository.UserIdentity identity : page) {
+                current.put(identity.getUsername(), identity.getEmail());
+                since = identity.getUpdatedAt();
+                afterId = identity.getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        if (since.isAfter(current.syncedUntil)) {
+            current.syncedUntil = since;
+        }
+    }
+
+    private void syncSafely() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("Could not sync user availability filters: {}", e.getMessage());
+        }
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild user availability filters: {}", e.getMessage());
+        }
+    }
+
+    private static final class Filters {
+
+        private final BloomFilter usernames;
+        private final BloomFilter emails;
+        /**
+         * updated_at más reciente incorporado; solo lo modifica el hilo de sincronización
+         */
+        private LocalDateTime syncedUntil;
+
+        Filters(BloomFilter usernames, BloomFilter emails) {
+            this.usernames = usernames;
+            this.emails = emails;
+        }
+
+        void put(String username, String email) {
+            usernames.put(username);
+            emails.put(email);
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package com.chat.module.auth.service;
 
+import com.chat.exception.CustomExceptions;
 import com.chat.model.postgres.User;
 import com.chat.module.auth.dto.ChangePasswordRequest;
 import com.chat.module.auth.dto.UpdateProfileRequest;
 import com.chat.module.auth.dto.UserResponse;
 import com.chat.module.auth.repository.UserRepository;
+import com.chat.security.AccountStatusCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,6 +25,8 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final AccountStatusCache accountStatusCache;
+    private final UserAvailabilityFilter userAvailabilityFilter;
 
     @Transactional(readOnly = true)
     public UserResponse getUserById(Long userId) {
@@ -58,15 +63,15 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         if (request.getUsername() != null && !request.getUsername().equals(user.getUsername())) {
-            if (userRepository.existsByUsername(request.getUsername())) {
-                throw new RuntimeException("Username already exists");
+            if (userAvailabilityFilter.isUsernameTaken(request.getUsername())) {
+                throw new CustomExceptions.ConflictException("Username already exists");
             }
             user.setUsername(request.getUsername());
         }
 
         if (request.getEmail() != null && !request.getEmail().equals(user.getEmail())) {
-            if (userRepository.existsByEmail(request.getEmail())) {
-                throw new RuntimeException("Email already exists");
+            if (userAvailabilityFilter.isEmailTaken(request.getEmail())) {
+                throw new CustomExceptions.ConflictException("Email already exists");
             }
             user.setEmail(request.getEmail());
         }
@@ -79,7 +84,13 @@ public class UserService {
             user.setProfilePictureUrl(request.getProfilePictureUrl());
         }
 
-        user = userRepository.save(user);
+        try {
+            // flush inmediato: la violación de unique se traduce aquí y no al hacer commit
+            user = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw userAvailabilityFilter.conflict(e);
+        }
+        userAvailabilityFilter.record(user);
         log.info("Profile updated successfully for user: {}", userId);
 
         return UserResponse.fromUser(user);
@@ -124,6 +135,7 @@ public class UserService {
         user.setIsActive(false);
         user.setStatus(User.UserStatus.OFFLINE);
         userRepository.save(user);
+        accountStatusCache.evict(userId);
 
         log.info("Account deactivated for user: {}", userId);
     }
@@ -0,0 +1,130 @@
+package com.chat.module.auth.service;
+
+import com.chat.config.UserSessionConfig;
+import com.chat.model.mongo.UserSession;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mantiene al día UserSession.lastActivity (del que depende el TTL de 30 días) sin escribir por request.
+ * La actividad solo marca el par (userId, deviceId) en memoria; cada chat.sessions.activity-flush-seconds
+ * los pares marcados se actualizan en Mongo con operaciones bulk, con la hora de la escritura
+ * (precisión de un intervalo, suficiente para el TTL y para elegir dispositivos en los push).
+ */
+@Component
+@Slf4j
+public class UserSessionActivityTracker {
+
+    private final MongoTemplate mongoTemplate;
+    private final UserSessionConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final Set<DeviceKey> active = ConcurrentHashMap.newKeySet();
+    private final Counter flushedSessions;
+
+    public UserSessionActivityTracker(MongoTemplate mongoTemplate, UserSessionConfig config,
+                                      MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.config = config;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-session-activity");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flushedSessions = Counter.builder("chat.auth.session_activity.flushed")
+                .register(meterRegistry);
+        Gauge.builder("chat.auth.session_activity.pending", active, Set::size)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::flushSafely,
+                config.getActivityFlushSeconds(), config.getActivityFlushSeconds(), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+        flushSafely();
+    }
+
+    /**
+     * Actividad del dispositivo; en el caso común (ya marcado en este intervalo) es solo una lectura
+     */
+    public void record(Long userId, String deviceId) {
+        if (userId == null || deviceId == null) {
+            return;
+        }
+        DeviceKey key = new DeviceKey(userId, deviceId);
+        if (!active.contains(key)) {
+            active.add(key);
+        }
+    }
+
+    private void flush() {
+        if (active.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<DeviceKey> batch = new ArrayList<>(config.getActivityBatchSize());
+        for (Iterator<DeviceKey> it = active.iterator(); it.hasNext(); ) {
+            batch.add(it.next());
+            it.remove();
+            if (batch.size() == config.getActivityBatchSize()) {
+                write(batch, now);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch, now);
+        }
+    }
+
+    private void write(List<DeviceKey> batch, LocalDateTime now) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserSession.class);
+        for (DeviceKey key : batch) {
+            bulk.updateMulti(
+                    Query.query(Criteria.where("userId").is(key.userId()).and("deviceId").is(key.deviceId())),
+                    Update.update("lastActivity", now));
+        }
+        try {
+            bulk.execute();
+            flushedSessions.increment(batch.size());
+        } catch (RuntimeException e) {
+            // Se reintenta en el siguiente intervalo salvo que haya habido actividad nueva (ya marcada)
+            active.addAll(batch);
+            throw e;
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Could not flush user session activity: {}", e.getMessage());
+        }
+    }
+
+    private record DeviceKey(Long userId, String deviceId) {
+    }
+}
@@ -0,0 +1,81 @@
+package com.chat.module.auth.service;
+
+import com.chat.model.mongo.UserSession;
+import com.chat.module.auth.dto.LoginRequest;
+import com.chat.module.auth.repository.UserSessionMongoRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Guarda en Mongo la sesión del dispositivo tras el login sin que la respuesta espere la escritura.
+ * Con la cola llena la escritura la hace el propio hilo de la request, de modo que en un pico
+ * no se pierden sesiones.
+ */
+@Component
+@Slf4j
+public class UserSessionWriter {
+
+    private static final int THREADS = 2;
+    private static final int QUEUE_CAPACITY = 1000;
+
+    private final UserSessionMongoRepository userSessionMongoRepository;
+    private final ThreadPoolExecutor executor;
+
+    public UserSessionWriter(UserSessionMongoRepository userSessionMongoRepository, MeterRegistry meterRegistry) {
+        this.userSessionMongoRepository = userSessionMongoRepository;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-session-writer-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        Gauge.builder("chat.auth.session_writes.queue_depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    public void create(Long userId, LoginRequest request) {
+        UserSession session = new UserSession();
+        session.setUserId(userId);
+        session.setDeviceId(request.getDeviceId());
+        session.setDeviceType(request.getDeviceType());
+        session.setFcmToken(request.getFcmToken());
+        session.setLastActivity(LocalDateTime.now());
+        session.setIsActive(true);
+
+        executor.execute(() -> save(session));
+    }
+
+    private void save(UserSession session) {
+        try {
+            userSessionMongoRepository.save(session);
+            log.info("User session created for device: {}", session.getDeviceId());
+        } catch (RuntimeException e) {
+            log.warn("Could not create session of user {} for device {}: {}",
+                    session.getUserId(), session.getDeviceId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Da unos segundos a las escrituras pendientes antes de cerrar
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("Discarding {} pending user session writes", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+}
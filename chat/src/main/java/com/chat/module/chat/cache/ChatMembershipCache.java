@@ -0,0 +1,223 @@
+package com.chat.module.chat.cache;
+
+import com.chat.cluster.MembershipRevocations;
+import com.chat.cluster.RemoteChatInvalidationEvent;
+import com.chat.cluster.RemoteMembershipRevokedEvent;
+import com.chat.config.ClusterConfig;
+import com.chat.config.MembershipCacheConfig;
+import com.chat.model.postgres.ChatParticipant;
+import com.chat.module.chat.repository.ChatParticipantRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chats activos de cada usuario y su rol en cada uno, para autorizar suscripciones STOMP y las operaciones de
+ * ChatService y MessageService con una búsqueda en memoria en lugar de una consulta por operación.
+ * Cada usuario se carga con una sola consulta en un {@link LongLongHashMap} chatId -> rol, sin boxing, que no se
+ * modifica después de publicarse; cualquier cambio descarta la entrada tras el commit y la siguiente consulta
+ * la recarga. Las bajas se propagan al cluster ({@link MembershipRevocations}: NOTIFY en modo postgres, un topic
+ * del broker en modo relay) y se publican como {@link ChatMembershipRevokedEvent} para cerrar las suscripciones
+ * ya abiertas en cada nodo. Las altas y promociones hechas en otro nodo no se propagan: las respuestas negativas
+ * se confirman en la base de datos.
+ * Se indexa por usuario, no por chat: no depende de ChatOwnership y cada nodo guarda los usuarios que atiende.
+ * Con el broker relay la entrega de las bajas no está garantizada: la caché se desactiva y cada consulta va a la
+ * base de datos.
+ */
+@Component
+@Slf4j
+public class ChatMembershipCache {
+
+    private static final int STAMP_STRIPES = 1024;
+
+    private static final ChatParticipant.ParticipantRole[] ROLES = ChatParticipant.ParticipantRole.values();
+
+    private final ChatParticipantRepository chatParticipantRepository;
+    private final MembershipCacheConfig config;
+    private final boolean enabled;
+    private final ObjectProvider<MembershipRevocations> membershipRevocations;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, UserChats> chatsByUser = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Contadores de invalidaciones por franja de userId, para descartar cargas que compiten con un cambio
+     */
+    private final long[] invalidationStamps = new long[STAMP_STRIPES];
+
+    public ChatMembershipCache(ChatParticipantRepository chatParticipantRepository, MembershipCacheConfig config,
+                               ClusterConfig clusterConfig, ObjectProvider<MembershipRevocations> membershipRevocations,
+                               ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+        this.chatParticipantRepository = chatParticipantRepository;
+        this.config = config;
+        this.enabled = clusterConfig.getMode() != ClusterConfig.Mode.RELAY;
+        if (!enabled) {
+            log.warn("Chat membership cache disabled: chat.cluster.mode=relay does not guarantee cross-node revocation");
+        }
+        this.membershipRevocations = membershipRevocations;
+        this.eventPublisher = eventPublisher;
+        this.hits = Counter.builder("chat.cache.membership.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("chat.cache.membership.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("chat.cache.membership.users", chatsByUser, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Indica si el usuario participa activamente en el chat
+     */
+    public boolean isMember(Long userId, Long chatId) {
+        if (enabled && chats(userId).roleOf(chatId) != null) {
+            return true;
+        }
+        // Las altas hechas en otro nodo no se propagan: una respuesta negativa se confirma en la base de datos
+        if (Boolean.TRUE.equals(chatParticipantRepository.existsByChatIdAndUserIdAndIsActive(chatId, userId, true))) {
+            evict(userId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Indica si el usuario es admin activo del chat (no hay degradación de admins: solo se confirma el negativo)
+     */
+    public boolean isAdmin(Long userId, Long chatId) {
+        if (enabled && chats(userId).roleOf(chatId) == ChatParticipant.ParticipantRole.ADMIN) {
+            return true;
+        }
+        boolean admin = chatParticipantRepository.findByChatIdAndUserId(chatId, userId)
+                .filter(participant -> Boolean.TRUE.equals(participant.getIsActive())
+                        && participant.getRole() == ChatParticipant.ParticipantRole.ADMIN)
+                .isPresent();
+        if (admin) {
+            evict(userId);
+        }
+        return admin;
+    }
+
+    /**
+     * Usuarios agregados a un chat o con un rol nuevo: sus entradas se recargan tras el commit
+     */
+    public void granted(Collection<Long> userIds) {
+        afterCommit(() -> userIds.forEach(this::evict));
+    }
+
+    /**
+     * Usuario que deja un chat: tras el commit se invalida su entrada aquí y en los demás nodos
+     */
+    public void revoked(Long chatId, Long userId) {
+        afterCommit(() -> {
+            evict(userId);
+            eventPublisher.publishEvent(new ChatMembershipRevokedEvent(chatId, userId));
+            membershipRevocations.ifAvailable(revocations -> revocations.revokeMembership(chatId, userId));
+        });
+    }
+
+    /**
+     * Descarta la entrada de un usuario (p. ej. al cerrarse su última sesión)
+     */
+    public void evict(Long userId) {
+        synchronized (this) {
+            invalidationStamps[stripe(userId)]++;
+        }
+        chatsByUser.remove(userId);
+    }
+
+    @EventListener
+    public void onRemoteRevocation(RemoteMembershipRevokedEvent event) {
+        evict(event.userId());
+        eventPublisher.publishEvent(new ChatMembershipRevokedEvent(event.chatId(), event.userId()));
+    }
+
+    /**
+     * Se perdieron avisos del cluster: se descarta todo
+     */
+    @EventListener
+    public void onRemoteInvalidation(RemoteChatInvalidationEvent event) {
+        if (event.chatId() != null) {
+            return;
+        }
+        synchronized (this) {
+            for (int i = 0; i < STAMP_STRIPES; i++) {
+                invalidationStamps[i]++;
+            }
+        }
+        chatsByUser.clear();
+    }
+
+    private UserChats chats(Long userId) {
+        UserChats chats = chatsByUser.get(userId);
+        if (chats != null && System.nanoTime() - chats.loadedAt < config.getTtlSeconds() * 1_000_000_000L) {
+            hits.increment();
+            return chats;
+        }
+        misses.increment();
+        return load(userId);
+    }
+
+    private UserChats load(Long userId) {
+        long stamp;
+        synchronized (this) {
+            stamp = invalidationStamps[stripe(userId)];
+        }
+        List<Object[]> rows = chatParticipantRepository.findActiveChatRolesByUserId(userId);
+        LongLongHashMap roles = new LongLongHashMap(rows.size());
+        for (Object[] row : rows) {
+            roles.put((Long) row[0], ((ChatParticipant.ParticipantRole) row[1]).ordinal());
+        }
+        UserChats chats = new UserChats(roles, System.nanoTime());
+        synchronized (this) {
+            if (invalidationStamps[stripe(userId)] == stamp) {
+                if (chatsByUser.size() >= config.getMaxUsers()) {
+                    chatsByUser.clear();
+                }
+                chatsByUser.put(userId, chats);
+            }
+        }
+        return chats;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private int stripe(Long userId) {
+        return (int) (userId & (STAMP_STRIPES - 1));
+    }
+
+    /**
+     * Chats de un usuario; el mapa no se modifica tras la carga, así que se lee sin sincronización
+     */
+    private record UserChats(LongLongHashMap roles, long loadedAt) {
+
+        ChatParticipant.ParticipantRole roleOf(long chatId) {
+            long role = roles.get(chatId);
+            return role == LongLongHashMap.NO_VALUE ? null : ROLES[(int) role];
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.chat.module.chat.cache;
+
+/**
+ * El usuario dejó de participar en el chat (en este nodo o en otro): sus suscripciones al chat deben cerrarse
+ */
+public record ChatMembershipRevokedEvent(Long chatId, Long userId) {
+}
@@ -0,0 +1,142 @@
+package com.chat.module.chat.cache;
+
+import com.chat.module.chat.dto.MessageResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Ring buffer de capacidad fija con los mensajes más recientes de un chat
+ */
+final class ChatTail {
+
+    private final MessageResponse[] slots;
+    private int head;
+    private int count;
+    private long bytes;
+    private boolean exhaustive;
+
+    ChatTail(int capacity) {
+        this.slots = new MessageResponse[capacity];
+    }
+
+    /**
+     * Reconstruye un buffer a partir de sus mensajes, del más antiguo al más reciente
+     */
+    static ChatTail of(int capacity, List<MessageResponse> oldestFirst, boolean exhaustive) {
+        ChatTail tail = new ChatTail(capacity);
+        oldestFirst.forEach(tail::push);
+        tail.exhaustive = exhaustive;
+        return tail;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    boolean isExhaustive() {
+        return exhaustive;
+    }
+
+    void setExhaustive(boolean exhaustive) {
+        this.exhaustive = exhaustive;
+    }
+
+    void push(MessageResponse message) {
+        if (count == slots.length) {
+            // El más antiguo sale del buffer pero sigue en la base de datos
+            bytes -= estimateBytes(slots[head]);
+            exhaustive = false;
+        } else {
+            count++;
+        }
+        slots[head] = message;
+        bytes += estimateBytes(message);
+        head = (head + 1) % slots.length;
+    }
+
+    List<MessageResponse> newestFirst(int limit) {
+        int n = Math.min(limit, count);
+        List<MessageResponse> result = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            result.add(slots[index(i)]);
+        }
+        return result;
+    }
+
+    List<MessageResponse> oldestFirst() {
+        List<MessageResponse> result = new ArrayList<>(count);
+        for (int i = count; i >= 1; i--) {
+            result.add(slots[index(i)]);
+        }
+        return result;
+    }
+
+    MessageResponse find(String messageId) {
+        for (int i = 1; i <= count; i++) {
+            MessageResponse message = slots[index(i)];
+            if (message.getId().equals(messageId)) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    boolean replace(String messageId, UnaryOperator<MessageResponse> updater) {
+        for (int i = 1; i <= count; i++) {
+            int idx = index(i);
+            if (slots[idx].getId().equals(messageId)) {
+                MessageResponse updated = updater.apply(slots[idx]);
+                bytes += estimateBytes(updated) - estimateBytes(slots[idx]);
+                slots[idx] = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean remove(String messageId) {
+        List<MessageResponse> kept = oldestFirst();
+        if (!kept.removeIf(message -> message.getId().equals(messageId))) {
+            return false;
+        }
+        boolean wasExhaustive = exhaustive;
+        Arrays.fill(slots, null);
+        head = 0;
+        count = 0;
+        bytes = 0;
+        kept.forEach(this::push);
+        exhaustive = wasExhaustive;
+        return true;
+    }
+
+    /**
+     * Índice del i-ésimo mensaje más reciente (i = 1 es el último)
+     */
+    private int index(int i) {
+        return Math.floorMod(head - i, slots.length);
+    }
+
+    static long estimateBytes(MessageResponse message) {
+        long bytes = 256;
+        if (message.getContent() != null) {
+            bytes += 2L * message.getContent().length();
+        }
+        if (message.getReactions() != null) {
+            bytes += 96L * message.getReactions().size();
+        }
+        if (message.getReadBy() != null) {
+            bytes += 80L * message.getReadBy().size();
+        }
+        if (message.getMetadata() != null) {
+            bytes += 160;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,121 @@
+package com.chat.module.chat.cache;
+
+import com.chat.module.chat.dto.MessageResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Buffers en el heap, expulsados por LRU de chat al superar el límite de memoria.
+ * Los cambios se aplican sobre el buffer en su sitio; el lock del store solo cubre operaciones en memoria.
+ */
+@Slf4j
+final class HeapRecentMessageStore implements RecentMessageStore {
+
+    private final long maxBytes;
+    private final LinkedHashMap<Long, ChatTail> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    HeapRecentMessageStore(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public synchronized ChatTail get(Long chatId) {
+        return entries.get(chatId);
+    }
+
+    @Override
+    public synchronized void put(Long chatId, ChatTail tail) {
+        ChatTail previous = entries.put(chatId, tail);
+        if (previous != null) {
+            totalBytes -= previous.bytes();
+        }
+        totalBytes += tail.bytes();
+        evictIfNeeded();
+    }
+
+    @Override
+    public synchronized void append(Long chatId, MessageResponse message) {
+        ChatTail tail = entries.get(chatId);
+        if (tail == null) {
+            return;
+        }
+        long before = tail.bytes();
+        tail.push(message);
+        totalBytes += tail.bytes() - before;
+        evictIfNeeded();
+    }
+
+    @Override
+    public synchronized void replace(Long chatId, MessageResponse message) {
+        ChatTail tail = entries.get(chatId);
+        if (tail == null) {
+            return;
+        }
+        long before = tail.bytes();
+        if (tail.replace(message.getId(), current -> message)) {
+            totalBytes += tail.bytes() - before;
+            evictIfNeeded();
+        }
+    }
+
+    @Override
+    public synchronized void remove(Long chatId, String messageId) {
+        ChatTail tail = entries.get(chatId);
+        if (tail == null) {
+            return;
+        }
+        long before = tail.bytes();
+        if (tail.remove(messageId)) {
+            totalBytes += tail.bytes() - before;
+        }
+    }
+
+    @Override
+    public synchronized MessageResponse find(Long chatId, String messageId) {
+        ChatTail tail = entries.get(chatId);
+        return tail != null ? tail.find(messageId) : null;
+    }
+
+    @Override
+    public synchronized void evict(Long chatId) {
+        ChatTail previous = entries.remove(chatId);
+        if (previous != null) {
+            totalBytes -= previous.bytes();
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    @Override
+    public synchronized int chatCount() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized long liveBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public synchronized long allocatedBytes() {
+        return totalBytes;
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Long, ChatTail>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<Long, ChatTail> eldest = it.next();
+            totalBytes -= eldest.getValue().bytes();
+            it.remove();
+            log.debug("Evicted recent messages of chat {}", eldest.getKey());
+        }
+    }
+}
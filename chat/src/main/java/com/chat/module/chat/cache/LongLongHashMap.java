@@ -0,0 +1,158 @@
+package com.chat.module.chat.cache;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Mapa long -> long con direccionamiento abierto (sondeo lineal), sin boxing.
+ * No es thread-safe.
+ */
+final class LongLongHashMap {
+
+    static final long NO_VALUE = Long.MIN_VALUE;
+
+    private static final long FREE_KEY = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int resizeAt;
+
+    LongLongHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(long key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == FREE_KEY) {
+                return NO_VALUE;
+            }
+            if (k == key) {
+                return values[i];
+            }
+        }
+    }
+
+    /**
+     * Asocia el valor a la clave y devuelve el anterior (o {@link #NO_VALUE})
+     */
+    long put(long key, long value) {
+        if (key == FREE_KEY) {
+            throw new IllegalArgumentException("Reserved key: " + key);
+        }
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        for (; keys[i] != FREE_KEY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                long previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return NO_VALUE;
+    }
+
+    long remove(long key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; keys[i] != FREE_KEY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                long previous = values[i];
+                shiftDown(i);
+                size--;
+                return previous;
+            }
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * Elimina las entradas cuyo valor cumple el predicado y devuelve cuántas se eliminaron
+     */
+    int removeIfValue(LongPredicate predicate, LongLongConsumer onRemove) {
+        int removed = 0;
+        int i = 0;
+        while (i < keys.length) {
+            if (keys[i] != FREE_KEY && predicate.test(values[i])) {
+                onRemove.accept(keys[i], values[i]);
+                shiftDown(i);
+                size--;
+                removed++;
+                // La posición i puede haber recibido otra entrada desplazada: se vuelve a evaluar
+            } else {
+                i++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Borrado con desplazamiento hacia atrás para no dejar lápidas en la tabla
+     */
+    private void shiftDown(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & mask;
+            long k = keys[i];
+            if (k == FREE_KEY) {
+                break;
+            }
+            int home = mix(k) & mask;
+            // Se mueve la entrada si su posición ideal no está entre el hueco y su posición actual
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = k;
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = FREE_KEY;
+        values[gap] = 0;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newCapacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, FREE_KEY);
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(16, capacity);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    interface LongLongConsumer {
+        void accept(long key, long value);
+    }
+}
@@ -0,0 +1,342 @@
+package com.chat.module.chat.cache;
+
+import com.chat.module.chat.dto.MessageResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Buffers serializados fuera del heap, en arenas de ByteBuffer directos escritas en modo append.
+ * Cada chat es una cadena de registros: un snapshot con el buffer completo seguido de un registro por cambio
+ * (mensaje nuevo, reemplazo o borrado), enlazados hacia atrás. Un envío escribe solo su mensaje; la cadena
+ * se compacta en un snapshot nuevo cada {@code messagesPerChat} cambios.
+ * Cuando la arena actual se llena se recicla la más antigua y se descartan los chats cuyo snapshot estaba
+ * en ella (el snapshot es el registro más antiguo de su cadena). Los chats leídos desde la mitad más
+ * antigua se compactan en la arena actual, lo que aproxima un LRU por chat sin mover datos en cada acceso.
+ * Los índices son mapas de longs primitivos, así que el heap solo crece con el número de chats.
+ * El lock del store cubre los índices y las copias de bytes; la (de)serialización JSON se hace fuera de él.
+ */
+@Slf4j
+final class OffHeapRecentMessageStore implements RecentMessageStore {
+
+    /**
+     * Longitud del payload, tipo, registro anterior y cambios desde el snapshot
+     */
+    private static final int HEADER_BYTES = Integer.BYTES + 1 + Long.BYTES + Integer.BYTES;
+    private static final int TYPE_OFFSET = Integer.BYTES;
+    private static final int PREVIOUS_OFFSET = TYPE_OFFSET + 1;
+    private static final int OPS_OFFSET = PREVIOUS_OFFSET + Long.BYTES;
+
+    private static final byte SNAPSHOT = 0;
+    private static final byte PUSH = 1;
+    private static final byte REPLACE = 2;
+    private static final byte REMOVE = 3;
+    private static final byte TYPE_MASK = 0x0F;
+    private static final byte FLAG_EXHAUSTIVE = 0x10;
+
+    private static final TypeReference<List<MessageResponse>> MESSAGES = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+    private final int messagesPerChat;
+    private final int arenaBytes;
+    private final ByteBuffer[] arenas;
+    private final int[] positions;
+
+    /**
+     * chatId -> último registro de la cadena
+     */
+    private LongLongHashMap heads = new LongLongHashMap(1024);
+    /**
+     * chatId -> snapshot que inicia la cadena
+     */
+    private LongLongHashMap snapshots = new LongLongHashMap(1024);
+    /**
+     * chatId -> bytes de la cadena
+     */
+    private LongLongHashMap chainBytes = new LongLongHashMap(1024);
+
+    private int writeArena;
+    private long liveBytes;
+    private long recycledArenas;
+
+    OffHeapRecentMessageStore(ObjectMapper objectMapper, int messagesPerChat, long maxBytes, int arenaBytes) {
+        this.objectMapper = objectMapper;
+        this.messagesPerChat = messagesPerChat;
+        this.arenaBytes = arenaBytes;
+        int arenaCount = (int) Math.max(2, maxBytes / arenaBytes);
+        this.arenas = new ByteBuffer[arenaCount];
+        this.positions = new int[arenaCount];
+        log.info("Off-heap recent message store: {} arenas of {} bytes", arenaCount, arenaBytes);
+    }
+
+    @Override
+    public ChatTail get(Long chatId) {
+        Deque<Record> chain;
+        boolean old;
+        synchronized (this) {
+            long head = heads.get(chatId);
+            if (head == LongLongHashMap.NO_VALUE) {
+                return null;
+            }
+            chain = readChain(head);
+            old = Math.floorMod(writeArena - arenaOf(snapshots.get(chatId)), arenas.length) >= arenas.length / 2;
+        }
+
+        ChatTail tail = replay(chatId, chain);
+        // Segunda oportunidad: lo leído desde la mitad más antigua se compacta en la arena actual
+        if (tail != null && old) {
+            put(chatId, tail);
+        }
+        return tail;
+    }
+
+    @Override
+    public void put(Long chatId, ChatTail tail) {
+        byte[] payload = serialize(chatId, tail.oldestFirst());
+        if (payload == null) {
+            return;
+        }
+        synchronized (this) {
+            write(chatId, (byte) (SNAPSHOT | (tail.isExhaustive() ? FLAG_EXHAUSTIVE : 0)),
+                    LongLongHashMap.NO_VALUE, 0, payload);
+        }
+    }
+
+    @Override
+    public void append(Long chatId, MessageResponse message) {
+        byte[] payload = serialize(chatId, message);
+        if (payload != null) {
+            appendChange(chatId, PUSH, payload, tail -> tail.push(message));
+        }
+    }
+
+    @Override
+    public void replace(Long chatId, MessageResponse message) {
+        byte[] payload = serialize(chatId, message);
+        if (payload != null) {
+            appendChange(chatId, REPLACE, payload, tail -> tail.replace(message.getId(), current -> message));
+        }
+    }
+
+    @Override
+    public void remove(Long chatId, String messageId) {
+        appendChange(chatId, REMOVE, messageId.getBytes(StandardCharsets.UTF_8), tail -> tail.remove(messageId));
+    }
+
+    @Override
+    public MessageResponse find(Long chatId, String messageId) {
+        ChatTail tail = get(chatId);
+        return tail != null ? tail.find(messageId) : null;
+    }
+
+    @Override
+    public synchronized void evict(Long chatId) {
+        heads.remove(chatId);
+        snapshots.remove(chatId);
+        long bytes = chainBytes.remove(chatId);
+        if (bytes != LongLongHashMap.NO_VALUE) {
+            liveBytes -= bytes;
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        heads = new LongLongHashMap(1024);
+        snapshots = new LongLongHashMap(1024);
+        chainBytes = new LongLongHashMap(1024);
+        liveBytes = 0;
+    }
+
+    @Override
+    public synchronized int chatCount() {
+        return heads.size();
+    }
+
+    @Override
+    public synchronized long liveBytes() {
+        return liveBytes;
+    }
+
+    @Override
+    public synchronized long allocatedBytes() {
+        long allocated = 0;
+        for (ByteBuffer arena : arenas) {
+            if (arena != null) {
+                allocated += arena.capacity();
+            }
+        }
+        return allocated;
+    }
+
+    synchronized long recycledArenas() {
+        return recycledArenas;
+    }
+
+    /**
+     * Encadena un cambio al chat, o lo compacta en un snapshot si la cadena ya tiene {@code messagesPerChat} cambios
+     */
+    private void appendChange(Long chatId, byte type, byte[] payload, Consumer<ChatTail> change) {
+        synchronized (this) {
+            long head = heads.get(chatId);
+            if (head == LongLongHashMap.NO_VALUE) {
+                return;
+            }
+            int ops = arenas[arenaOf(head)].getInt(offsetOf(head) + OPS_OFFSET) + 1;
+            if (ops < messagesPerChat) {
+                write(chatId, type, head, ops, payload);
+                return;
+            }
+        }
+
+        // RecentMessageCache no permite otro cambio del chat mientras tanto; si el reciclado lo descartó, get da null
+        ChatTail tail = get(chatId);
+        if (tail != null) {
+            change.accept(tail);
+            put(chatId, tail);
+        }
+    }
+
+    /**
+     * Copia los registros de la cadena, del snapshot al más reciente
+     */
+    private Deque<Record> readChain(long head) {
+        Deque<Record> chain = new ArrayDeque<>();
+        long location = head;
+        while (true) {
+            ByteBuffer buffer = arenas[arenaOf(location)];
+            int offset = offsetOf(location);
+            byte type = buffer.get(offset + TYPE_OFFSET);
+            byte[] payload = new byte[buffer.getInt(offset)];
+            buffer.get(offset + HEADER_BYTES, payload);
+            chain.addFirst(new Record(type, payload));
+            if ((type & TYPE_MASK) == SNAPSHOT) {
+                return chain;
+            }
+            location = buffer.getLong(offset + PREVIOUS_OFFSET);
+        }
+    }
+
+    private ChatTail replay(Long chatId, Deque<Record> chain) {
+        try {
+            Record snapshot = chain.removeFirst();
+            ChatTail tail = ChatTail.of(messagesPerChat, objectMapper.readValue(snapshot.payload(), MESSAGES),
+                    (snapshot.type() & FLAG_EXHAUSTIVE) != 0);
+            for (Record record : chain) {
+                switch (record.type() & TYPE_MASK) {
+                    case PUSH -> tail.push(objectMapper.readValue(record.payload(), MessageResponse.class));
+                    case REPLACE -> {
+                        MessageResponse message = objectMapper.readValue(record.payload(), MessageResponse.class);
+                        tail.replace(message.getId(), current -> message);
+                    }
+                    case REMOVE -> tail.remove(new String(record.payload(), StandardCharsets.UTF_8));
+                    default -> throw new IOException("unknown record type " + record.type());
+                }
+            }
+            return tail;
+        } catch (IOException e) {
+            log.warn("Discarding unreadable cached messages of chat {}: {}", chatId, e.getMessage());
+            evict(chatId);
+            return null;
+        }
+    }
+
+    private byte[] serialize(Long chatId, Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize recent messages of chat {}: {}", chatId, e.getMessage());
+            evict(chatId);
+            return null;
+        }
+    }
+
+    /**
+     * Escribe un registro al final de la arena actual. Un snapshot reemplaza la cadena anterior del chat.
+     */
+    private void write(Long chatId, byte type, long previous, int ops, byte[] payload) {
+        int needed = HEADER_BYTES + payload.length;
+        if (needed > arenaBytes) {
+            log.debug("Recent messages of chat {} exceed the arena size, not cached", chatId);
+            evict(chatId);
+            return;
+        }
+        if (positions[writeArena] + needed > arenaBytes) {
+            writeArena = (writeArena + 1) % arenas.length;
+            recycle(writeArena);
+        }
+        boolean snapshot = (type & TYPE_MASK) == SNAPSHOT;
+        if (!snapshot && heads.get(chatId) != previous) {
+            // El reciclado descartó el chat: la cadena ya no tiene snapshot
+            return;
+        }
+        if (arenas[writeArena] == null) {
+            arenas[writeArena] = ByteBuffer.allocateDirect(arenaBytes);
+        }
+
+        ByteBuffer buffer = arenas[writeArena];
+        int offset = positions[writeArena];
+        buffer.putInt(offset, payload.length);
+        buffer.put(offset + TYPE_OFFSET, type);
+        buffer.putLong(offset + PREVIOUS_OFFSET, previous);
+        buffer.putInt(offset + OPS_OFFSET, ops);
+        buffer.put(offset + HEADER_BYTES, payload);
+        positions[writeArena] = offset + needed;
+
+        long location = location(writeArena, offset);
+        heads.put(chatId, location);
+        if (snapshot) {
+            snapshots.put(chatId, location);
+            long replaced = chainBytes.put(chatId, needed);
+            if (replaced != LongLongHashMap.NO_VALUE) {
+                liveBytes -= replaced;
+            }
+        } else {
+            chainBytes.put(chatId, chainBytes.get(chatId) + needed);
+        }
+        liveBytes += needed;
+    }
+
+    /**
+     * Descarta los chats cuyo snapshot está en la arena antes de volver a escribir en ella.
+     * El resto de sus registros es posterior, así que ninguna cadena vigente queda apuntando a la arena.
+     */
+    private void recycle(int arena) {
+        if (positions[arena] == 0) {
+            return;
+        }
+        int evicted = snapshots.removeIfValue(
+                location -> arenaOf(location) == arena,
+                (chatId, location) -> {
+                    heads.remove(chatId);
+                    liveBytes -= chainBytes.remove(chatId);
+                });
+        positions[arena] = 0;
+        recycledArenas++;
+        log.debug("Recycled off-heap arena {}, evicted {} chats", arena, evicted);
+    }
+
+    private static long location(int arena, int offset) {
+        return ((long) arena << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int arenaOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offsetOf(long location) {
+        return (int) location;
+    }
+
+    private record Record(byte type, byte[] payload) {
+    }
+}
@@ -0,0 +1,261 @@
+package com.chat.module.chat.cache;
+
+import com.chat.cluster.ChatOwnership;
+import com.chat.cluster.ClusterFanout;
+import com.chat.cluster.RemoteChatInvalidationEvent;
+import com.chat.config.ClusterConfig;
+import com.chat.config.RecentMessageCacheConfig;
+import com.chat.module.chat.dto.MessageResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché de los últimos mensajes de cada chat activo (ring buffer por chat).
+ * Sirve la página 0 de getChatMessages sin consultar la base de datos.
+ * Los buffers se guardan en el heap o fuera de él según chat.cache.recent-messages.storage.
+ * En cluster, cada cambio invalida la copia del chat en los demás nodos a través del {@link ClusterFanout}.
+ * Con afinidad de chats solo el nodo dueño de un chat lo cachea.
+ */
+@Component
+@Slf4j
+public class RecentMessageCache {
+
+    private static final int STAMP_STRIPES = 1024;
+
+    private final RecentMessageCacheConfig config;
+    private final ObjectProvider<ClusterFanout> clusterFanout;
+    private final ChatOwnership ownership;
+    private final boolean enabled;
+    private final RecentMessageStore store;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Contadores de mutaciones por franja de chatId, para descartar cargas que compiten con escrituras
+     */
+    private final long[] mutationStamps = new long[STAMP_STRIPES];
+    /**
+     * Locks por franja de chatId: serializan los cambios de un chat sin bloquear a los demás
+     */
+    private final Object[] locks = new Object[STAMP_STRIPES];
+
+    public RecentMessageCache(RecentMessageCacheConfig config, ClusterConfig clusterConfig,
+                              ObjectProvider<ClusterFanout> clusterFanout, ChatOwnership ownership,
+                              ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.clusterFanout = clusterFanout;
+        this.ownership = ownership;
+        for (int i = 0; i < STAMP_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        // Con el broker relay no hay canal entre nodos para invalidar copias: la caché se desactiva
+        this.enabled = config.isEnabled() && clusterConfig.getMode() != ClusterConfig.Mode.RELAY;
+        if (config.isEnabled() && !enabled) {
+            log.warn("Recent message cache disabled: chat.cluster.mode=relay provides no cross-node invalidation");
+        }
+        this.store = config.getStorage() == RecentMessageCacheConfig.Storage.OFF_HEAP
+                ? new OffHeapRecentMessageStore(objectMapper, config.getMessagesPerChat(),
+                        config.getMaxBytes(), config.getArenaBytes())
+                : new HeapRecentMessageStore(config.getMaxBytes());
+
+        String storage = config.getStorage().name().toLowerCase();
+        this.hits = Counter.builder("chat.cache.recent_messages.requests")
+                .tag("result", "hit").tag("storage", storage)
+                .register(meterRegistry);
+        this.misses = Counter.builder("chat.cache.recent_messages.requests")
+                .tag("result", "miss").tag("storage", storage)
+                .register(meterRegistry);
+        Gauge.builder("chat.cache.recent_messages.chats", this, RecentMessageCache::chatCount)
+                .tag("storage", storage)
+                .register(meterRegistry);
+        Gauge.builder("chat.cache.recent_messages.live_bytes", this, RecentMessageCache::liveBytes)
+                .tag("storage", storage)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("chat.cache.recent_messages.allocated_bytes", this, RecentMessageCache::allocatedBytes)
+                .tag("storage", storage)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Devuelve los últimos {@code size} mensajes (más recientes primero) si el buffer puede responder la página completa
+     */
+    public Optional<List<MessageResponse>> getLatest(Long chatId, int size) {
+        if (!enabled || !ownership.isLocal(chatId)) {
+            return Optional.empty();
+        }
+        synchronized (lock(chatId)) {
+            ChatTail tail = store.get(chatId);
+            if (tail != null && (tail.count() >= size || tail.isExhaustive())) {
+                hits.increment();
+                return Optional.of(tail.newestFirst(size));
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Marca de mutaciones a tomar antes de leer de la base de datos y pasar a {@link #seed}
+     */
+    public long loadStamp(Long chatId) {
+        synchronized (lock(chatId)) {
+            return mutationStamps[stripe(chatId)];
+        }
+    }
+
+    /**
+     * Carga el buffer de un chat con la primera página leída de la base de datos (más recientes primero).
+     * {@code exhaustive} indica que la página contiene todo el historial del chat.
+     */
+    public void seed(Long chatId, List<MessageResponse> newestFirst, boolean exhaustive, long stamp) {
+        if (!enabled || !ownership.isLocal(chatId)) {
+            return;
+        }
+        int capacity = config.getMessagesPerChat();
+        ChatTail tail = new ChatTail(capacity);
+        int toKeep = Math.min(newestFirst.size(), capacity);
+        for (int i = toKeep - 1; i >= 0; i--) {
+            tail.push(normalize(newestFirst.get(i)));
+        }
+        tail.setExhaustive(exhaustive && newestFirst.size() <= capacity);
+        synchronized (lock(chatId)) {
+            if (mutationStamps[stripe(chatId)] == stamp) {
+                store.put(chatId, tail);
+            }
+        }
+    }
+
+    /**
+     * Agrega un mensaje nuevo al buffer del chat, si está en caché
+     */
+    public void append(MessageResponse message) {
+        Long chatId = message.getChatId();
+        synchronized (lock(chatId)) {
+            touch(chatId);
+            store.append(chatId, normalize(message));
+        }
+        invalidateRemote(chatId);
+    }
+
+    /**
+     * Reemplaza un mensaje cacheado por el resultado de {@code updater}
+     */
+    public void update(Long chatId, String messageId, UnaryOperator<MessageResponse> updater) {
+        synchronized (lock(chatId)) {
+            touch(chatId);
+            MessageResponse current = store.find(chatId, messageId);
+            if (current != null) {
+                store.replace(chatId, normalize(updater.apply(current)));
+            }
+        }
+        invalidateRemote(chatId);
+    }
+
+    /**
+     * Obtiene un mensaje cacheado
+     */
+    public Optional<MessageResponse> peek(Long chatId, String messageId) {
+        synchronized (lock(chatId)) {
+            return Optional.ofNullable(store.find(chatId, messageId));
+        }
+    }
+
+    /**
+     * Quita un mensaje eliminado del buffer
+     */
+    public void remove(Long chatId, String messageId) {
+        synchronized (lock(chatId)) {
+            touch(chatId);
+            store.remove(chatId, messageId);
+        }
+        invalidateRemote(chatId);
+    }
+
+    public void invalidate(Long chatId) {
+        synchronized (lock(chatId)) {
+            touch(chatId);
+            store.evict(chatId);
+        }
+        invalidateRemote(chatId);
+    }
+
+    /**
+     * Cambio hecho en otro nodo: se descarta la copia local sin volver a avisar al cluster
+     */
+    @EventListener
+    public void onRemoteInvalidation(RemoteChatInvalidationEvent event) {
+        if (event.chatId() == null) {
+            // Las cargas en curso quedan descartadas por la marca; lo ya cargado se borra con clear
+            for (int i = 0; i < STAMP_STRIPES; i++) {
+                synchronized (locks[i]) {
+                    mutationStamps[i]++;
+                }
+            }
+            store.clear();
+            return;
+        }
+        synchronized (lock(event.chatId())) {
+            mutationStamps[stripe(event.chatId())]++;
+            store.evict(event.chatId());
+        }
+    }
+
+    private double chatCount() {
+        return store.chatCount();
+    }
+
+    private double liveBytes() {
+        return store.liveBytes();
+    }
+
+    private double allocatedBytes() {
+        return store.allocatedBytes();
+    }
+
+    /**
+     * Se llama con el lock de la franja del chat tomado
+     */
+    private void touch(Long chatId) {
+        mutationStamps[stripe(chatId)]++;
+    }
+
+    /**
+     * El aviso al cluster puede esperar a la base de datos: se emite fuera del lock de la franja
+     */
+    private void invalidateRemote(Long chatId) {
+        if (enabled) {
+            clusterFanout.ifAvailable(fanout -> fanout.invalidateChat(chatId));
+        }
+    }
+
+    private Object lock(Long chatId) {
+        return locks[stripe(chatId)];
+    }
+
+    private int stripe(Long chatId) {
+        return (int) (chatId & (STAMP_STRIPES - 1));
+    }
+
+    /**
+     * El estado de lectura es propio de cada usuario y se calcula al servir
+     */
+    private MessageResponse normalize(MessageResponse message) {
+        return message.getIsRead() == null ? message : message.toBuilder().isRead(null).build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.chat.module.chat.cache;
+
+import com.chat.module.chat.dto.MessageResponse;
+
+/**
+ * Almacenamiento de los buffers de mensajes recientes por chat.
+ * {@link RecentMessageCache} serializa las operaciones sobre un mismo chat (lock por franja de chatId);
+ * las implementaciones protegen sus estructuras compartidas entre chats.
+ */
+interface RecentMessageStore {
+
+    /**
+     * Obtiene el buffer de un chat y lo marca como usado recientemente. Solo se lee: los cambios se hacen
+     * con {@link #put}, {@link #append}, {@link #replace} y {@link #remove}.
+     */
+    ChatTail get(Long chatId);
+
+    /**
+     * Reemplaza el buffer completo de un chat
+     */
+    void put(Long chatId, ChatTail tail);
+
+    /**
+     * Agrega un mensaje nuevo al buffer del chat, si está almacenado
+     */
+    void append(Long chatId, MessageResponse message);
+
+    /**
+     * Reemplaza el mensaje con el mismo id, si está en el buffer del chat
+     */
+    void replace(Long chatId, MessageResponse message);
+
+    /**
+     * Quita un mensaje del buffer del chat
+     */
+    void remove(Long chatId, String messageId);
+
+    /**
+     * Obtiene un mensaje del buffer del chat, o null
+     */
+    MessageResponse find(Long chatId, String messageId);
+
+    /**
+     * Descarta el buffer de un chat
+     */
+    void evict(Long chatId);
+
+    void clear();
+
+    int chatCount();
+
+    /**
+     * Bytes ocupados por entradas vigentes
+     */
+    long liveBytes();
+
+    /**
+     * Bytes reservados por el almacenamiento (en heap coincide con liveBytes)
+     */
+    long allocatedBytes();
+}
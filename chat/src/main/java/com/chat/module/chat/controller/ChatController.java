@@ -1,16 +1,14 @@
 package com.chat.module.chat.controller;
 
-import com.chat.module.auth.dto.UserResponse;
-import com.chat.module.auth.service.UserService;
 import com.chat.module.chat.dto.ChatRequest;
 import com.chat.module.chat.dto.ChatResponse;
 import com.chat.module.chat.service.ChatService;
+import com.chat.security.ChatPrincipal;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
@@ -26,16 +24,12 @@ import java.util.Map;
 public class ChatController {
 
     private final ChatService chatService;
-    private final UserService userService;
 
     /**
      * Obtiene el ID del usuario autenticado
      */
     private Long getCurrentUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserResponse user = userService.getUserByUsername(username);
-        return user.getId();
+        return ChatPrincipal.from(SecurityContextHolder.getContext().getAuthentication()).userId();
     }
 
     /**
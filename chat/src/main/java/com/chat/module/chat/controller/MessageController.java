@@ -1,18 +1,19 @@
 package com.chat.module.chat.controller;
 
-import com.chat.module.auth.dto.UserResponse;
-import com.chat.module.auth.service.UserService;
 import com.chat.module.chat.dto.MessageRequest;
 import com.chat.module.chat.dto.MessageResponse;
-import com.chat.module.chat.dto.ReadReceiptRequest;
 import com.chat.module.chat.dto.ReactionRequest;
+import com.chat.module.chat.dto.ReadReceiptRequest;
+import com.chat.module.chat.dto.SyncRequest;
+import com.chat.module.chat.dto.SyncResponse;
 import com.chat.module.chat.service.MessageService;
+import com.chat.security.ChatPrincipal;
+import com.chat.websocket.BroadcastPayload;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
@@ -28,16 +29,12 @@ import java.util.Map;
 public class MessageController {
 
     private final MessageService messageService;
-    private final UserService userService;
 
     /**
      * Obtiene el ID del usuario autenticado
      */
     private Long getCurrentUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserResponse user = userService.getUserByUsername(username);
-        return user.getId();
+        return ChatPrincipal.from(SecurityContextHolder.getContext().getAuthentication()).userId();
     }
 
     /**
@@ -45,11 +42,12 @@ public class MessageController {
      * POST /api/messages
      */
     @PostMapping
-    public ResponseEntity<MessageResponse> sendMessage(@Valid @RequestBody MessageRequest request) {
+    public ResponseEntity<BroadcastPayload<MessageResponse>> sendMessage(@Valid @RequestBody MessageRequest request) {
         Long userId = getCurrentUserId();
         log.info("Send message request from user: {} to chat: {}", userId, request.getChatId());
 
-        MessageResponse response = messageService.sendMessage(userId, request);
+        // Se responde con los mismos bytes JSON ya difundidos al chat
+        BroadcastPayload<MessageResponse> response = messageService.sendMessagePrepared(userId, request);
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
@@ -182,4 +180,17 @@ public class MessageController {
         List<MessageResponse> messages = messageService.searchMessages(userId, chatId, q);
         return ResponseEntity.ok(messages);
     }
+
+    /**
+     * Sincronización incremental para clientes que se reconectan
+     * POST /api/messages/sync
+     */
+    @PostMapping("/sync")
+    public ResponseEntity<SyncResponse> syncChanges(@Valid @RequestBody SyncRequest request) {
+        Long userId = getCurrentUserId();
+        log.info("Sync request from user: {} for {} chats", userId, request.getCursors().size());
+
+        SyncResponse response = messageService.syncChanges(userId, request);
+        return ResponseEntity.ok(response);
+    }
 }
\ No newline at end of file
@@ -1,11 +1,9 @@
 package com.chat.module.chat.controller;
 
-import com.chat.module.auth.dto.UserResponse;
-import com.chat.module.auth.service.UserService;
 import com.chat.module.chat.dto.MessageRequest;
-import com.chat.module.chat.dto.MessageResponse;
 import com.chat.module.chat.dto.TypingIndicatorRequest;
-import com.chat.module.chat.service.MessageService;
+import com.chat.module.chat.service.ChatCommandRouter;
+import com.chat.security.ChatPrincipal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -20,50 +18,41 @@ import java.security.Principal;
 @Slf4j
 public class MessageWebSocketController {
 
-    private final MessageService messageService;
-    private final UserService userService;
-
-    /**
-     * Obtiene el ID del usuario desde el principal
-     */
-    private Long getUserIdFromPrincipal(Principal principal) {
-        if (principal == null) {
-            throw new RuntimeException("User not authenticated");
-        }
-        String username = principal.getName();
-        UserResponse user = userService.getUserByUsername(username);
-        return user.getId();
-    }
+    private final ChatCommandRouter commandRouter;
 
     /**
      * Envía un mensaje a través de WebSocket
      * Cliente envía a: /app/chat.send
-     * Servidor publica en: /topic/chat/{chatId}
+     * Servidor publica en: /topic/chat.{chatId}
+     * (sin valor de retorno: evita una segunda serialización hacia /topic/chat.send)
+     * Con afinidad de chats se ejecuta en el nodo dueño del chat.
      */
     @MessageMapping("/chat.send")
-    public MessageResponse sendMessage(
+    public void sendMessage(
             @Payload MessageRequest request,
             Principal principal) {
-        Long userId = getUserIdFromPrincipal(principal);
+        ChatPrincipal chatPrincipal = ChatPrincipal.from(principal);
+        Long userId = chatPrincipal.userId();
         log.info("WebSocket: Send message from user {} to chat {}", userId, request.getChatId());
 
-        return messageService.sendMessage(userId, request);
+        commandRouter.sendMessage(userId, chatPrincipal.getName(), request);
     }
 
     /**
      * Maneja indicadores de escritura
      * Cliente envía a: /app/chat.typing
-     * Servidor publica en: /topic/chat/{chatId}/typing
+     * Servidor publica en: /topic/chat.{chatId}.typing
      */
     @MessageMapping("/chat.typing")
     public void handleTypingIndicator(
             @Payload TypingIndicatorRequest request,
             Principal principal) {
-        Long userId = getUserIdFromPrincipal(principal);
+        ChatPrincipal chatPrincipal = ChatPrincipal.from(principal);
+        Long userId = chatPrincipal.userId();
         log.info("WebSocket: Typing indicator from user {} in chat {}: {}", 
                 userId, request.getChatId(), request.getIsTyping());
 
-        messageService.handleTypingIndicator(userId, request);
+        commandRouter.handleTypingIndicator(userId, chatPrincipal.getName(), request);
     }
 
     /**
@@ -75,9 +64,7 @@ public class MessageWebSocketController {
         if (principal != null) {
             String username = principal.getName();
             log.info("WebSocket: User {} connected", username);
-            
-            // Aquí podrías actualizar el estado del usuario a ONLINE
-            // userService.updateUserStatus(userId, User.UserStatus.ONLINE);
+            // El estado ONLINE lo mantiene PresenceRegistry a partir de las sesiones WebSocket
         }
     }
 
@@ -90,9 +77,7 @@ public class MessageWebSocketController {
         if (principal != null) {
             String username = principal.getName();
             log.info("WebSocket: User {} disconnected", username);
-            
-            // Aquí podrías actualizar el estado del usuario a OFFLINE
-            // userService.updateUserStatus(userId, User.UserStatus.OFFLINE);
+            // El estado OFFLINE lo escribe PresenceRegistry al cerrarse la última sesión del usuario
         }
     }
 }
\ No newline at end of file
@@ -13,7 +13,7 @@ import java.util.stream.Collectors;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class MessageResponse {
     private String id;
     private Long chatId;
@@ -32,6 +32,8 @@ public class MessageResponse {
     private Boolean isRead;
 
     @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
     @Builder
     public static class MessageMetadataInfo {
         private String fileName;
@@ -42,6 +44,8 @@ public class MessageResponse {
     }
 
     @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
     @Builder
     public static class ReactionInfo {
         private Long userId;
@@ -51,6 +55,8 @@ public class MessageResponse {
     }
 
     @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
     @Builder
     public static class ReadReceiptInfo {
         private Long userId;
@@ -0,0 +1,26 @@
+package com.chat.module.chat.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncRequest {
+
+    /**
+     * Cursor por chat (chatId -> último cursor recibido). Un cursor nulo indica que el cliente no tiene estado.
+     */
+    @NotEmpty(message = "At least one chat cursor is required")
+    private Map<Long, String> cursors;
+
+    @Min(value = 1, message = "Limit must be at least 1")
+    @Max(value = 500, message = "Limit must be at most 500")
+    private Integer limit;
+}
@@ -0,0 +1,27 @@
+package com.chat.module.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SyncResponse {
+    private List<ChatChanges> chats;
+
+    @Data
+    @Builder
+    public static class ChatChanges {
+        private Long chatId;
+        private String cursor;
+        private Boolean hasMore;
+        private Boolean resetRequired;
+        private List<MessageResponse> messages;
+        private List<String> deletedMessageIds;
+    }
+}
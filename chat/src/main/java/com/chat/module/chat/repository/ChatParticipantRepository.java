@@ -21,6 +21,17 @@ public interface ChatParticipantRepository extends JpaRepository<ChatParticipant
     
     Boolean existsByChatIdAndUserId(Long chatId, Long userId);
     
+    Boolean existsByChatIdAndUserIdAndIsActive(Long chatId, Long userId, Boolean isActive);
+    
+    @Query("SELECT cp.chat.id, cp.role FROM ChatParticipant cp WHERE cp.user.id = :userId AND cp.isActive = true")
+    List<Object[]> findActiveChatRolesByUserId(@Param("userId") Long userId);
+    
+    @Query("SELECT other.user.username FROM ChatParticipant me, ChatParticipant other " +
+           "WHERE me.user.id = :userId AND me.isActive = true " +
+           "AND me.chat.chatType = com.chat.model.postgres.Chat.ChatType.PRIVATE " +
+           "AND other.chat.id = me.chat.id AND other.user.id <> :userId AND other.isActive = true")
+    List<String> findPrivateChatPeerUsernames(@Param("userId") Long userId);
+    
     @Query("SELECT COUNT(cp) FROM ChatParticipant cp WHERE cp.chat.id = :chatId AND cp.isActive = true")
     Long countActiveByChatId(@Param("chatId") Long chatId);
     
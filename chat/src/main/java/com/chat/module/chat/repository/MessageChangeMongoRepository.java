@@ -0,0 +1,17 @@
+package com.chat.module.chat.repository;
+
+import com.chat.model.mongo.MessageChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MessageChangeMongoRepository extends MongoRepository<MessageChange, String> {
+
+    List<MessageChange> findByChatIdAndSequenceGreaterThanOrderBySequenceAsc(Long chatId, Long sequence, Pageable pageable);
+
+    Optional<MessageChange> findFirstByChatIdAndSequenceNotNullOrderBySequenceAsc(Long chatId);
+}
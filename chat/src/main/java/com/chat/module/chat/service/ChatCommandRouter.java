@@ -0,0 +1,190 @@
+package com.chat.module.chat.service;
+
+import com.chat.cluster.ChatOwnership;
+import com.chat.cluster.ClusterFanout;
+import com.chat.cluster.ForwardedChatCommandEvent;
+import com.chat.config.ClusterConfig;
+import com.chat.exception.ApiResponse;
+import com.chat.module.chat.dto.MessageRequest;
+import com.chat.module.chat.dto.TypingIndicatorRequest;
+import com.chat.websocket.ChatBroadcaster;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ejecuta los comandos de chat recibidos por WebSocket en el nodo dueño del chat.
+ * Sin afinidad de chats (o si el dueño es este nodo) los ejecuta directamente.
+ * Los comandos reenviados por otros nodos se ejecutan en hilos propios, fuera del listener del cluster;
+ * cada chat usa siempre el mismo hilo para conservar el orden de sus mensajes. Si no se pueden ejecutar,
+ * el error se envía al usuario por /user/queue/errors.
+ */
+@Service
+@Slf4j
+public class ChatCommandRouter {
+
+    private static final String SEND = "chat.send";
+    private static final String TYPING = "chat.typing";
+    private static final String ERRORS_DESTINATION = "/queue/errors";
+
+    private final MessageService messageService;
+    private final ChatOwnership ownership;
+    private final ObjectProvider<ClusterFanout> clusterFanout;
+    private final ChatBroadcaster broadcaster;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor[] lanes;
+    private final Counter rejected;
+
+    public ChatCommandRouter(MessageService messageService, ChatOwnership ownership,
+                             ObjectProvider<ClusterFanout> clusterFanout, ChatBroadcaster broadcaster,
+                             ObjectMapper objectMapper, ClusterConfig clusterConfig, MeterRegistry meterRegistry) {
+        this.messageService = messageService;
+        this.ownership = ownership;
+        this.clusterFanout = clusterFanout;
+        this.broadcaster = broadcaster;
+        this.objectMapper = objectMapper;
+        ClusterConfig.Affinity affinity = clusterConfig.getAffinity();
+        this.lanes = new ThreadPoolExecutor[ownership.isEnabled() ? Math.max(1, affinity.getForwardThreads()) : 0];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "chat-forwarded-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(affinity.getForwardQueueCapacity()),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        this.rejected = Counter.builder("chat.cluster.forward.rejected")
+                .register(meterRegistry);
+        Gauge.builder("chat.cluster.forward.queue_depth", this, ChatCommandRouter::queueDepth)
+                .register(meterRegistry);
+    }
+
+    public void sendMessage(Long userId, String user, MessageRequest request) {
+        if (!forward(request.getChatId(), SEND, userId, user, request)) {
+            messageService.sendMessage(userId, request);
+        }
+    }
+
+    public void handleTypingIndicator(Long userId, String user, TypingIndicatorRequest request) {
+        if (!forward(request.getChatId(), TYPING, userId, user, request)) {
+            messageService.handleTypingIndicator(userId, request);
+        }
+    }
+
+    /**
+     * Comando reenviado por otro nodo: se ejecuta aquí aunque el anillo haya cambiado, para no reenviarlo en bucle
+     */
+    @EventListener
+    public void onForwardedCommand(ForwardedChatCommandEvent event) {
+        Runnable task;
+        Long chatId;
+        try {
+            switch (event.command()) {
+                case SEND -> {
+                    MessageRequest request = objectMapper.readValue(event.body(), MessageRequest.class);
+                    chatId = request.getChatId();
+                    task = () -> messageService.sendMessage(event.userId(), request);
+                }
+                case TYPING -> {
+                    TypingIndicatorRequest request = objectMapper.readValue(event.body(), TypingIndicatorRequest.class);
+                    chatId = request.getChatId();
+                    task = () -> messageService.handleTypingIndicator(event.userId(), request);
+                }
+                default -> {
+                    log.warn("Ignoring unknown forwarded chat command {}", event.command());
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Discarding unreadable forwarded chat command {}: {}", event.command(), e.getMessage());
+            reportError(event, "Could not process the request");
+            return;
+        }
+        if (lanes.length == 0) {
+            // Este nodo no tiene afinidad activa (configuración distinta entre nodos): se ejecuta en el listener
+            run(event, task);
+            return;
+        }
+
+        try {
+            lanes[Math.floorMod(Long.hashCode(chatId == null ? 0 : chatId), lanes.length)].execute(() -> run(event, task));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Forwarded chat command queue full, rejecting {} from user {}", event.command(), event.userId());
+            reportError(event, "Server busy, please retry");
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private void run(ForwardedChatCommandEvent event, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.warn("Forwarded chat command {} from user {} failed: {}", event.command(), event.userId(), e.getMessage());
+            reportError(event, e.getMessage());
+        }
+    }
+
+    /**
+     * El indicador de escritura es efímero: su fallo no se notifica
+     */
+    private void reportError(ForwardedChatCommandEvent event, String message) {
+        if (event.user() == null || !SEND.equals(event.command())) {
+            return;
+        }
+        try {
+            broadcaster.sendToUser(event.user(), ERRORS_DESTINATION, ApiResponse.error(message));
+        } catch (RuntimeException e) {
+            log.warn("Could not report forwarded command failure to user {}: {}", event.userId(), e.getMessage());
+        }
+    }
+
+    private boolean forward(Long chatId, String command, Long userId, String user, Object body) {
+        if (chatId == null || ownership.isLocal(chatId)) {
+            return false;
+        }
+        ClusterFanout fanout = clusterFanout.getIfAvailable();
+        if (fanout == null) {
+            return false;
+        }
+        try {
+            if (fanout.forward(ownership.ownerOf(chatId), command, userId, user, objectMapper.writeValueAsBytes(body))) {
+                return true;
+            }
+            log.warn("Could not forward chat command {} to the owner of chat {}, executing locally", command, chatId);
+            return false;
+        } catch (JsonProcessingException e) {
+            log.warn("Could not forward chat command {}, executing locally: {}", command, e.getMessage());
+            return false;
+        }
+    }
+
+    private double queueDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            depth += lane.getQueue().size();
+        }
+        return depth;
+    }
+}
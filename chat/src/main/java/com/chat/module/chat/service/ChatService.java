@@ -5,11 +5,13 @@ import com.chat.model.postgres.Chat;
 import com.chat.model.postgres.ChatParticipant;
 import com.chat.model.postgres.User;
 import com.chat.module.auth.repository.UserRepository;
+import com.chat.module.chat.cache.ChatMembershipCache;
 import com.chat.module.chat.dto.ChatRequest;
 import com.chat.module.chat.dto.ChatResponse;
 import com.chat.module.chat.repository.ChatParticipantRepository;
 import com.chat.module.chat.repository.ChatRepository;
 import com.chat.module.chat.repository.MessageMongoRepository;
+import com.chat.module.presence.service.PresenceWatcherCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -28,6 +30,8 @@ public class ChatService {
     private final ChatParticipantRepository chatParticipantRepository;
     private final UserRepository userRepository;
     private final MessageMongoRepository messageMongoRepository;
+    private final ChatMembershipCache membershipCache;
+    private final PresenceWatcherCache presenceWatcherCache;
 
     /**
      * Crea un nuevo chat (privado o grupal)
@@ -129,6 +133,10 @@ public class ChatService {
             log.info("Added participant {} to chat {}", participantId, chat.getId());
         }
 
+        membershipCache.granted(participants.stream().map(p -> p.getUser().getId()).toList());
+        if (chatType == Chat.ChatType.PRIVATE) {
+            presenceWatcherCache.evict(participants.stream().map(p -> p.getUser().getId()).toArray(Long[]::new));
+        }
         return ChatResponse.fromChat(chat, participants);
     }
 
@@ -143,7 +151,7 @@ public class ChatService {
                 .orElseThrow(() -> new CustomExceptions.ResourceNotFoundException("Chat not found"));
 
         // Verificar que el usuario sea participante del chat
-        if (!chatParticipantRepository.existsByChatIdAndUserId(chatId, userId)) {
+        if (!membershipCache.isMember(userId, chatId)) {
             throw new CustomExceptions.ForbiddenException("Access denied to this chat");
         }
 
@@ -230,14 +238,15 @@ public class ChatService {
         }
 
         // Verificar que el usuario sea admin del grupo
-        ChatParticipant userParticipant = chatParticipantRepository.findByChatIdAndUserId(chatId, userId)
-                .orElseThrow(() -> new CustomExceptions.ForbiddenException("Access denied to this chat"));
-
-        if (userParticipant.getRole() != ChatParticipant.ParticipantRole.ADMIN) {
+        if (!membershipCache.isAdmin(userId, chatId)) {
+            if (!membershipCache.isMember(userId, chatId)) {
+                throw new CustomExceptions.ForbiddenException("Access denied to this chat");
+            }
             throw new CustomExceptions.ForbiddenException("Only admins can add participants");
         }
 
         // Agregar los nuevos participantes
+        List<Long> added = new ArrayList<>();
         for (Long participantId : participantIds) {
             // Verificar si ya es participante
             if (chatParticipantRepository.existsByChatIdAndUserId(chatId, participantId)) {
@@ -257,8 +266,10 @@ public class ChatService {
             chatParticipant.setNotificationsEnabled(true);
 
             chatParticipantRepository.save(chatParticipant);
+            added.add(participantId);
             log.info("Added participant {} to chat {}", participantId, chatId);
         }
+        membershipCache.granted(added);
 
         List<ChatParticipant> participants = chatParticipantRepository.findByChatIdAndIsActive(chatId, true);
         return ChatResponse.fromChat(chat, participants);
@@ -279,10 +290,10 @@ public class ChatService {
         }
 
         // Verificar que el usuario sea admin
-        ChatParticipant userParticipant = chatParticipantRepository.findByChatIdAndUserId(chatId, userId)
-                .orElseThrow(() -> new CustomExceptions.ForbiddenException("Access denied to this chat"));
-
-        if (userParticipant.getRole() != ChatParticipant.ParticipantRole.ADMIN) {
+        if (!membershipCache.isAdmin(userId, chatId)) {
+            if (!membershipCache.isMember(userId, chatId)) {
+                throw new CustomExceptions.ForbiddenException("Access denied to this chat");
+            }
             throw new CustomExceptions.ForbiddenException("Only admins can remove participants");
         }
 
@@ -297,6 +308,7 @@ public class ChatService {
         }
 
         chatParticipantRepository.deactivateParticipant(chatId, participantId);
+        membershipCache.revoked(chatId, participantId);
         log.info("Participant {} removed from chat {}", participantId, chatId);
 
         List<ChatParticipant> participants = chatParticipantRepository.findByChatIdAndIsActive(chatId, true);
@@ -315,10 +327,11 @@ public class ChatService {
 
         if (chat.getChatType() == Chat.ChatType.GROUP) {
             // Para grupos, verificar si es el único admin
-            ChatParticipant userParticipant = chatParticipantRepository.findByChatIdAndUserId(chatId, userId)
-                    .orElseThrow(() -> new CustomExceptions.ForbiddenException("Not a participant of this chat"));
+            if (!membershipCache.isMember(userId, chatId)) {
+                throw new CustomExceptions.ForbiddenException("Not a participant of this chat");
+            }
 
-            if (userParticipant.getRole() == ChatParticipant.ParticipantRole.ADMIN) {
+            if (membershipCache.isAdmin(userId, chatId)) {
                 List<ChatParticipant> admins = chatParticipantRepository.findByChatIdAndRole(
                         chatId, ChatParticipant.ParticipantRole.ADMIN);
                 if (admins.size() == 1) {
@@ -329,6 +342,7 @@ public class ChatService {
         }
 
         chatParticipantRepository.deactivateParticipant(chatId, userId);
+        membershipCache.revoked(chatId, userId);
         log.info("User {} left chat {}", userId, chatId);
     }
 
@@ -347,10 +361,10 @@ public class ChatService {
         }
 
         // Verificar que el usuario sea admin
-        ChatParticipant userParticipant = chatParticipantRepository.findByChatIdAndUserId(chatId, userId)
-                .orElseThrow(() -> new CustomExceptions.ForbiddenException("Access denied to this chat"));
-
-        if (userParticipant.getRole() != ChatParticipant.ParticipantRole.ADMIN) {
+        if (!membershipCache.isAdmin(userId, chatId)) {
+            if (!membershipCache.isMember(userId, chatId)) {
+                throw new CustomExceptions.ForbiddenException("Access denied to this chat");
+            }
             throw new CustomExceptions.ForbiddenException("Only admins can update group information");
         }
 
@@ -387,10 +401,10 @@ public class ChatService {
         }
 
         // Verificar que el usuario sea admin
-        ChatParticipant userParticipant = chatParticipantRepository.findByChatIdAndUserId(chatId, userId)
-                .orElseThrow(() -> new CustomExceptions.ForbiddenException("Access denied to this chat"));
-
-        if (userParticipant.getRole() != ChatParticipant.ParticipantRole.ADMIN) {
+        if (!membershipCache.isAdmin(userId, chatId)) {
+            if (!membershipCache.isMember(userId, chatId)) {
+                throw new CustomExceptions.ForbiddenException("Access denied to this chat");
+            }
             throw new CustomExceptions.ForbiddenException("Only admins can promote other participants");
         }
 
@@ -400,6 +414,7 @@ public class ChatService {
 
         participant.setRole(ChatParticipant.ParticipantRole.ADMIN);
         chatParticipantRepository.save(participant);
+        membershipCache.granted(List.of(participantId));
         
         log.info("Participant {} promoted to admin in chat {}", participantId, chatId);
 
@@ -438,7 +453,7 @@ public class ChatService {
             }
         } else {
             // En chats privados, verificar que sea participante
-            if (!chatParticipantRepository.existsByChatIdAndUserId(chatId, userId)) {
+            if (!membershipCache.isMember(userId, chatId)) {
                 throw new CustomExceptions.ForbiddenException("Access denied to this chat");
             }
         }
@@ -447,6 +462,7 @@ public class ChatService {
         List<ChatParticipant> participants = chatParticipantRepository.findByChatIdAndIsActive(chatId, true);
         for (ChatParticipant participant : participants) {
             chatParticipantRepository.deactivateParticipant(chatId, participant.getUser().getId());
+            membershipCache.revoked(chatId, participant.getUser().getId());
         }
 
         log.info("Chat {} deleted successfully", chatId);
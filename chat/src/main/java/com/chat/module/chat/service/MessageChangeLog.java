@@ -0,0 +1,127 @@
+package com.chat.module.chat.service;
+
+import com.chat.exception.CustomExceptions;
+import com.chat.model.mongo.MessageChange;
+import com.chat.model.mongo.MessageChangeSequence;
+import com.chat.module.chat.repository.MessageChangeMongoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Registro de cambios por chat para la sincronización incremental.
+ * Cada cambio toma un número de secuencia del chat con un $inc atómico antes de insertarse, así que dos
+ * escrituras concurrentes pueden insertarse en orden inverso al de sus secuencias. Al leer, los cambios se
+ * entregan solo hasta el primer hueco: el cursor del cliente nunca supera a un cambio que aún no se insertó.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageChangeLog {
+
+    /**
+     * Debe coincidir con el TTL del índice de MessageChange.changedAt
+     */
+    public static final Duration RETENTION = Duration.ofDays(7);
+
+    /**
+     * Un hueco más antiguo que esto es una secuencia cuyo cambio nunca se insertó (escritor caído) y se salta
+     */
+    static final Duration GAP_GRACE = Duration.ofSeconds(10);
+
+    private final MessageChangeMongoRepository messageChangeMongoRepository;
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Registra un cambio sobre un mensaje
+     */
+    public void record(Long chatId, String messageId, MessageChange.ChangeType changeType, Long actorId) {
+        MessageChange change = new MessageChange();
+        change.setChatId(chatId);
+        change.setMessageId(messageId);
+        change.setChangeType(changeType);
+        change.setActorId(actorId);
+        change.setChangedAt(LocalDateTime.now());
+        change.setSequence(nextSequence(chatId));
+
+        messageChangeMongoRepository.save(change);
+        log.debug("Recorded {} change {} for message {} in chat {}", changeType, change.getSequence(), messageId, chatId);
+    }
+
+    /**
+     * Obtiene los cambios de un chat posteriores al cursor, en orden de secuencia y sin huecos
+     */
+    public List<MessageChange> findChangesSince(Long chatId, String cursor, int limit) {
+        long expected = parse(cursor) + 1;
+        List<MessageChange> changes = messageChangeMongoRepository.findByChatIdAndSequenceGreaterThanOrderBySequenceAsc(
+                chatId, expected - 1, PageRequest.of(0, limit));
+        LocalDateTime graceLimit = LocalDateTime.now().minus(GAP_GRACE);
+        for (int i = 0; i < changes.size(); i++) {
+            MessageChange change = changes.get(i);
+            if (change.getSequence() != expected && change.getChangedAt().isAfter(graceLimit)) {
+                // Una secuencia anterior sigue en vuelo: se entrega en la próxima sincronización
+                return changes.subList(0, i);
+            }
+            expected = change.getSequence() + 1;
+        }
+        return changes;
+    }
+
+    /**
+     * Obtiene el cursor más reciente de un chat (null si no hay cambios registrados)
+     */
+    public String latestCursor(Long chatId) {
+        MessageChangeSequence sequence = mongoTemplate.findById(chatId, MessageChangeSequence.class);
+        return sequence == null ? null : Long.toString(sequence.getSequence());
+    }
+
+    /**
+     * Indica si el registro ya no contiene todos los cambios posteriores al cursor (ventana de retención).
+     * Los cursores de versiones anteriores (ObjectId) se consideran expirados.
+     */
+    public boolean isExpired(Long chatId, String cursor) {
+        if (ObjectId.isValid(cursor)) {
+            return true;
+        }
+        long sequence = parse(cursor);
+        Optional<MessageChange> oldest = messageChangeMongoRepository.findFirstByChatIdAndSequenceNotNullOrderBySequenceAsc(chatId);
+        if (oldest.isPresent()) {
+            return oldest.get().getSequence() > sequence + 1;
+        }
+        String latest = latestCursor(chatId);
+        return latest != null && Long.parseLong(latest) > sequence;
+    }
+
+    private long nextSequence(Long chatId) {
+        MessageChangeSequence sequence = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(chatId)),
+                new Update().inc("sequence", 1),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                MessageChangeSequence.class);
+        return sequence.getSequence();
+    }
+
+    private static long parse(String cursor) {
+        try {
+            long sequence = Long.parseLong(cursor);
+            if (sequence >= 0) {
+                return sequence;
+            }
+        } catch (NumberFormatException e) {
+            // se informa abajo
+        }
+        throw new CustomExceptions.BadRequestException("Invalid sync cursor: " + cursor);
+    }
+}
@@ -2,29 +2,40 @@ package com.chat.module.chat.service;
 
 import com.chat.exception.CustomExceptions;
 import com.chat.model.mongo.Message;
+import com.chat.model.mongo.MessageChange;
 import com.chat.model.mongo.TypingIndicator;
 import com.chat.model.postgres.Chat;
-import com.chat.model.postgres.ChatParticipant;
 import com.chat.model.postgres.MessageMetadata;
 import com.chat.model.postgres.User;
 import com.chat.module.auth.repository.UserRepository;
+import com.chat.module.chat.cache.ChatMembershipCache;
+import com.chat.module.chat.cache.RecentMessageCache;
 import com.chat.module.chat.dto.MessageRequest;
 import com.chat.module.chat.dto.MessageResponse;
 import com.chat.module.chat.dto.ReadReceiptRequest;
+import com.chat.module.chat.dto.SyncRequest;
+import com.chat.module.chat.dto.SyncResponse;
 import com.chat.module.chat.dto.TypingIndicatorRequest;
 import com.chat.module.chat.repository.*;
+import com.chat.websocket.BroadcastPayload;
+import com.chat.websocket.ChatBroadcaster;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,19 +43,32 @@ import java.util.stream.Collectors;
 @Slf4j
 public class MessageService {
 
+    private static final int DEFAULT_SYNC_LIMIT = 200;
+
     private final MessageMongoRepository messageMongoRepository;
     private final MessageMetadataRepository messageMetadataRepository;
     private final ChatRepository chatRepository;
     private final ChatParticipantRepository chatParticipantRepository;
     private final UserRepository userRepository;
     private final TypingIndicatorMongoRepository typingIndicatorMongoRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ChatBroadcaster broadcaster;
+    private final MessageChangeLog changeLog;
+    private final RecentMessageCache recentMessageCache;
+    private final ChatMembershipCache membershipCache;
 
     /**
      * Envía un nuevo mensaje
      */
     @Transactional
     public MessageResponse sendMessage(Long userId, MessageRequest request) {
+        return sendMessagePrepared(userId, request).getValue();
+    }
+
+    /**
+     * Envía un nuevo mensaje y devuelve la respuesta ya serializada, la misma que se difundió al chat
+     */
+    @Transactional
+    public BroadcastPayload<MessageResponse> sendMessagePrepared(Long userId, MessageRequest request) {
         log.info("Sending message to chat {} from user {}", request.getChatId(), userId);
 
         // Verificar que el chat existe
@@ -52,11 +76,8 @@ public class MessageService {
                 .orElseThrow(() -> new CustomExceptions.ResourceNotFoundException("Chat not found"));
 
         // Verificar que el usuario es participante del chat
-        ChatParticipant participant = chatParticipantRepository.findByChatIdAndUserId(request.getChatId(), userId)
-                .orElseThrow(() -> new CustomExceptions.ForbiddenException("Not a participant of this chat"));
-
-        if (!participant.getIsActive()) {
-            throw new CustomExceptions.ForbiddenException("You have left this chat");
+        if (!membershipCache.isMember(userId, request.getChatId())) {
+            throw new CustomExceptions.ForbiddenException("Not a participant of this chat");
         }
 
         User sender = userRepository.findById(userId)
@@ -90,6 +111,7 @@ public class MessageService {
 
         message = messageMongoRepository.save(message);
         log.info("Message saved to MongoDB with ID: {}", message.getId());
+        changeLog.record(message.getChatId(), message.getId(), MessageChange.ChangeType.CREATED, userId);
 
         // Crear metadata en PostgreSQL
         MessageMetadata messageMetadata = new MessageMetadata();
@@ -118,11 +140,13 @@ public class MessageService {
         response.setSenderUsername(sender.getUsername());
         response.setSenderProfilePicture(sender.getProfilePictureUrl());
         response.setIsRead(false);
+        recentMessageCache.append(response);
 
         // Enviar notificación en tiempo real a los participantes del chat
-        messagingTemplate.convertAndSend("/topic/chat/" + request.getChatId(), response);
+        BroadcastPayload<MessageResponse> payload = broadcaster.prepare(response);
+        broadcaster.send("/topic/chat." + request.getChatId(), payload);
 
-        return response;
+        return payload;
     }
 
     /**
@@ -133,70 +157,33 @@ public class MessageService {
         log.info("Getting messages for chat {} by user {}, page: {}, size: {}", chatId, userId, page, size);
 
         // Verificar acceso al chat
-        if (!chatParticipantRepository.existsByChatIdAndUserId(chatId, userId)) {
+        if (!membershipCache.isMember(userId, chatId)) {
             throw new CustomExceptions.ForbiddenException("Access denied to this chat");
         }
 
+        // La página 0 de los chats activos se sirve desde la caché de mensajes recientes
+        if (page == 0) {
+            Optional<List<MessageResponse>> cached = recentMessageCache.getLatest(chatId, size);
+            if (cached.isPresent()) {
+                return cached.get().stream()
+                        .map(response -> withReadState(response, userId))
+                        .collect(Collectors.toList());
+            }
+        }
+
+        long cacheStamp = recentMessageCache.loadStamp(chatId);
         Pageable pageable = PageRequest.of(page, size);
         Page<Message> messagesPage = messageMongoRepository.findByChatIdAndDeletedAtIsNullOrderBySentAtDesc(chatId, pageable);
 
-        return messagesPage.getContent().stream()
-                .map(message -> {
-                    MessageResponse response = MessageResponse.fromMessage(message);
-                    
-                    // Agregar información del remitente
-                    User sender = userRepository.findById(message.getSenderId()).orElse(null);
-                    if (sender != null) {
-                        response.setSenderUsername(sender.getUsername());
-                        response.setSenderProfilePicture(sender.getProfilePictureUrl());
-                    }
-
-                    // Verificar si el mensaje fue leído por el usuario actual
-                    boolean isRead = message.getReadBy() != null && 
-                            message.getReadBy().stream()
-                                    .anyMatch(rb -> rb.getUserId().equals(userId));
-                    response.setIsRead(isRead);
-
-                    // Enriquecer información de reacciones con usernames
-                    if (message.getReactions() != null) {
-                        List<MessageResponse.ReactionInfo> enrichedReactions = message.getReactions().stream()
-                                .map(r -> {
-                                    User reactionUser = userRepository.findById(r.getUserId()).orElse(null);
-                                    MessageResponse.ReactionInfo reactionInfo = MessageResponse.ReactionInfo.builder()
-                                            .userId(r.getUserId())
-                                            .emoji(r.getEmoji())
-                                            .createdAt(r.getCreatedAt())
-                                            .build();
-                                    if (reactionUser != null) {
-                                        reactionInfo.setUsername(reactionUser.getUsername());
-                                    }
-                                    return reactionInfo;
-                                })
-                                .collect(Collectors.toList());
-                        response.setReactions(enrichedReactions);
-                    }
+        List<MessageResponse> responses = messagesPage.getContent().stream()
+                .map(message -> toEnrichedResponse(message, userId))
+                .collect(Collectors.toList());
 
-                    // Enriquecer información de read receipts con usernames
-                    if (message.getReadBy() != null) {
-                        List<MessageResponse.ReadReceiptInfo> enrichedReadBy = message.getReadBy().stream()
-                                .map(rb -> {
-                                    User readUser = userRepository.findById(rb.getUserId()).orElse(null);
-                                    MessageResponse.ReadReceiptInfo readInfo = MessageResponse.ReadReceiptInfo.builder()
-                                            .userId(rb.getUserId())
-                                            .readAt(rb.getReadAt())
-                                            .build();
-                                    if (readUser != null) {
-                                        readInfo.setUsername(readUser.getUsername());
-                                    }
-                                    return readInfo;
-                                })
-                                .collect(Collectors.toList());
-                        response.setReadBy(enrichedReadBy);
-                    }
+        if (page == 0) {
+            recentMessageCache.seed(chatId, responses, responses.size() < size, cacheStamp);
+        }
 
-                    return response;
-                })
-                .collect(Collectors.toList());
+        return responses;
     }
 
     /**
@@ -210,7 +197,7 @@ public class MessageService {
                 .orElseThrow(() -> new CustomExceptions.ResourceNotFoundException("Message not found"));
 
         // Verificar acceso al chat
-        if (!chatParticipantRepository.existsByChatIdAndUserId(message.getChatId(), userId)) {
+        if (!membershipCache.isMember(userId, message.getChatId())) {
             throw new CustomExceptions.ForbiddenException("Access denied to this message");
         }
 
@@ -251,6 +238,11 @@ public class MessageService {
 
         message = messageMongoRepository.save(message);
         log.info("Message {} edited successfully", messageId);
+        changeLog.record(message.getChatId(), messageId, MessageChange.ChangeType.EDITED, userId);
+
+        LocalDateTime editedAt = message.getEditedAt();
+        recentMessageCache.update(message.getChatId(), messageId,
+                cached -> cached.toBuilder().content(newContent).editedAt(editedAt).build());
 
         MessageResponse response = MessageResponse.fromMessage(message);
         
@@ -262,7 +254,7 @@ public class MessageService {
         }
 
         // Notificar en tiempo real
-        messagingTemplate.convertAndSend("/topic/chat/" + message.getChatId() + "/edit", response);
+        broadcaster.send("/topic/chat." + message.getChatId() + ".edit", response);
 
         return response;
     }
@@ -279,16 +271,18 @@ public class MessageService {
 
         // Verificar que el usuario es el remitente o admin del chat
         if (!message.getSenderId().equals(userId)) {
-            ChatParticipant participant = chatParticipantRepository.findByChatIdAndUserId(message.getChatId(), userId)
-                    .orElseThrow(() -> new CustomExceptions.ForbiddenException("Access denied"));
-            
-            if (participant.getRole() != ChatParticipant.ParticipantRole.ADMIN) {
+            if (!membershipCache.isAdmin(userId, message.getChatId())) {
+                if (!membershipCache.isMember(userId, message.getChatId())) {
+                    throw new CustomExceptions.ForbiddenException("Access denied");
+                }
                 throw new CustomExceptions.ForbiddenException("Can only delete your own messages or be an admin");
             }
         }
 
         message.setDeletedAt(LocalDateTime.now());
         messageMongoRepository.save(message);
+        changeLog.record(message.getChatId(), messageId, MessageChange.ChangeType.DELETED, userId);
+        recentMessageCache.remove(message.getChatId(), messageId);
 
         // Actualizar metadata en PostgreSQL
         MessageMetadata metadata = messageMetadataRepository.findByMessageMongoId(messageId).orElse(null);
@@ -300,7 +294,7 @@ public class MessageService {
         log.info("Message {} deleted successfully", messageId);
 
         // Notificar en tiempo real
-        messagingTemplate.convertAndSend("/topic/chat/" + message.getChatId() + "/delete", messageId);
+        broadcaster.send("/topic/chat." + message.getChatId() + ".delete", messageId);
     }
 
     /**
@@ -311,10 +305,11 @@ public class MessageService {
         log.info("Marking messages as read in chat {} by user {}", request.getChatId(), userId);
 
         // Verificar acceso al chat
-        if (!chatParticipantRepository.existsByChatIdAndUserId(request.getChatId(), userId)) {
+        if (!membershipCache.isMember(userId, request.getChatId())) {
             throw new CustomExceptions.ForbiddenException("Access denied to this chat");
         }
 
+        Map<Long, String> knownUsernames = new HashMap<>();
         for (String messageId : request.getMessageIds()) {
             Message message = messageMongoRepository.findById(messageId).orElse(null);
             if (message == null) {
@@ -337,13 +332,13 @@ public class MessageService {
                 message.getReadBy().add(readReceipt);
 
                 messageMongoRepository.save(message);
+                refreshCachedMessage(message, knownUsernames);
                 
-                // Notificar al remitente
-                messagingTemplate.convertAndSendToUser(
-                        message.getSenderId().toString(),
-                        "/queue/read-receipt",
-                        messageId
-                );
+                // Notificar al remitente (los destinos /user se resuelven por username, igual que el principal STOMP)
+                String senderUsername = resolveUsername(message.getSenderId(), knownUsernames);
+                if (senderUsername != null) {
+                    broadcaster.sendToUser(senderUsername, "/queue/read-receipt", messageId);
+                }
             }
         }
 
@@ -361,7 +356,7 @@ public class MessageService {
                 .orElseThrow(() -> new CustomExceptions.ResourceNotFoundException("Message not found"));
 
         // Verificar acceso al chat
-        if (!chatParticipantRepository.existsByChatIdAndUserId(message.getChatId(), userId)) {
+        if (!membershipCache.isMember(userId, message.getChatId())) {
             throw new CustomExceptions.ForbiddenException("Access denied to this chat");
         }
 
@@ -385,11 +380,13 @@ public class MessageService {
 
         message = messageMongoRepository.save(message);
         log.info("Reaction added successfully");
+        changeLog.record(message.getChatId(), messageId, MessageChange.ChangeType.REACTION, userId);
+        refreshCachedMessage(message, new HashMap<>());
 
         MessageResponse response = MessageResponse.fromMessage(message);
         
         // Notificar en tiempo real
-        messagingTemplate.convertAndSend("/topic/chat/" + message.getChatId() + "/reaction", response);
+        broadcaster.send("/topic/chat." + message.getChatId() + ".reaction", response);
 
         return response;
     }
@@ -405,7 +402,7 @@ public class MessageService {
                 .orElseThrow(() -> new CustomExceptions.ResourceNotFoundException("Message not found"));
 
         // Verificar acceso al chat
-        if (!chatParticipantRepository.existsByChatIdAndUserId(message.getChatId(), userId)) {
+        if (!membershipCache.isMember(userId, message.getChatId())) {
             throw new CustomExceptions.ForbiddenException("Access denied to this chat");
         }
 
@@ -413,11 +410,13 @@ public class MessageService {
             message.getReactions().removeIf(r -> r.getUserId().equals(userId) && r.getEmoji().equals(emoji));
             message = messageMongoRepository.save(message);
             log.info("Reaction removed successfully");
+            changeLog.record(message.getChatId(), messageId, MessageChange.ChangeType.REACTION, userId);
+            refreshCachedMessage(message, new HashMap<>());
 
             MessageResponse response = MessageResponse.fromMessage(message);
             
             // Notificar en tiempo real
-            messagingTemplate.convertAndSend("/topic/chat/" + message.getChatId() + "/reaction", response);
+            broadcaster.send("/topic/chat." + message.getChatId() + ".reaction", response);
 
             return response;
         }
@@ -433,7 +432,7 @@ public class MessageService {
         log.info("Handling typing indicator for user {} in chat {}: {}", userId, request.getChatId(), request.getIsTyping());
 
         // Verificar acceso al chat
-        if (!chatParticipantRepository.existsByChatIdAndUserId(request.getChatId(), userId)) {
+        if (!membershipCache.isMember(userId, request.getChatId())) {
             throw new CustomExceptions.ForbiddenException("Access denied to this chat");
         }
 
@@ -450,8 +449,8 @@ public class MessageService {
         // Notificar en tiempo real a otros participantes
         User user = userRepository.findById(userId).orElse(null);
         if (user != null) {
-            messagingTemplate.convertAndSend(
-                    "/topic/chat/" + request.getChatId() + "/typing",
+            broadcaster.send(
+                    "/topic/chat." + request.getChatId() + ".typing",
                     new TypingIndicatorResponse(userId, user.getUsername(), request.getIsTyping())
             );
         }
@@ -465,7 +464,7 @@ public class MessageService {
         log.info("Searching messages in chat {} with term: {}", chatId, searchTerm);
 
         // Verificar acceso al chat
-        if (!chatParticipantRepository.existsByChatIdAndUserId(chatId, userId)) {
+        if (!membershipCache.isMember(userId, chatId)) {
             throw new CustomExceptions.ForbiddenException("Access denied to this chat");
         }
 
@@ -484,6 +483,183 @@ public class MessageService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Sincronización incremental: devuelve los cambios de cada chat desde el cursor indicado
+     */
+    @Transactional(readOnly = true)
+    public SyncResponse syncChanges(Long userId, SyncRequest request) {
+        int limit = request.getLimit() != null ? request.getLimit() : DEFAULT_SYNC_LIMIT;
+        log.info("Syncing {} chats for user {} with limit {}", request.getCursors().size(), userId, limit);
+
+        List<SyncResponse.ChatChanges> chats = new ArrayList<>();
+
+        for (Map.Entry<Long, String> entry : request.getCursors().entrySet()) {
+            Long chatId = entry.getKey();
+            String cursor = entry.getValue();
+
+            // Verificar acceso al chat
+            if (!membershipCache.isMember(userId, chatId)) {
+                throw new CustomExceptions.ForbiddenException("Access denied to chat " + chatId);
+            }
+
+            // Sin cursor o fuera de la ventana de retención: el cliente debe recargar el chat completo
+            if (cursor == null || changeLog.isExpired(chatId, cursor)) {
+                chats.add(SyncResponse.ChatChanges.builder()
+                        .chatId(chatId)
+                        .cursor(changeLog.latestCursor(chatId))
+                        .hasMore(false)
+                        .resetRequired(true)
+                        .messages(List.of())
+                        .deletedMessageIds(List.of())
+                        .build());
+                continue;
+            }
+
+            List<MessageChange> changes = changeLog.findChangesSince(chatId, cursor, limit);
+            if (changes.isEmpty()) {
+                chats.add(SyncResponse.ChatChanges.builder()
+                        .chatId(chatId)
+                        .cursor(cursor)
+                        .hasMore(false)
+                        .resetRequired(false)
+                        .messages(List.of())
+                        .deletedMessageIds(List.of())
+                        .build());
+                continue;
+            }
+
+            // Varios cambios del mismo mensaje se resuelven con su estado actual, en una sola consulta
+            Set<String> changedIds = changes.stream()
+                    .map(MessageChange::getMessageId)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+
+            List<MessageResponse> messages = new ArrayList<>();
+            List<String> deletedMessageIds = new ArrayList<>();
+            for (Message message : messageMongoRepository.findAllById(changedIds)) {
+                if (message.getDeletedAt() != null) {
+                    deletedMessageIds.add(message.getId());
+                } else {
+                    messages.add(toEnrichedResponse(message, userId));
+                }
+            }
+            messages.sort(Comparator.comparing(MessageResponse::getSentAt));
+
+            chats.add(SyncResponse.ChatChanges.builder()
+                    .chatId(chatId)
+                    .cursor(changes.get(changes.size() - 1).getSequence().toString())
+                    .hasMore(changes.size() == limit)
+                    .resetRequired(false)
+                    .messages(messages)
+                    .deletedMessageIds(deletedMessageIds)
+                    .build());
+        }
+
+        return SyncResponse.builder().chats(chats).build();
+    }
+
+    /**
+     * Convierte un mensaje en respuesta enriquecida con usernames y estado de lectura del usuario
+     */
+    private MessageResponse toEnrichedResponse(Message message, Long userId) {
+        MessageResponse response = MessageResponse.fromMessage(message);
+
+        // Agregar información del remitente
+        User sender = userRepository.findById(message.getSenderId()).orElse(null);
+        if (sender != null) {
+            response.setSenderUsername(sender.getUsername());
+            response.setSenderProfilePicture(sender.getProfilePictureUrl());
+        }
+
+        // Verificar si el mensaje fue leído por el usuario actual
+        boolean isRead = message.getReadBy() != null &&
+                message.getReadBy().stream()
+                        .anyMatch(rb -> rb.getUserId().equals(userId));
+        response.setIsRead(isRead);
+
+        // Enriquecer información de reacciones con usernames
+        if (message.getReactions() != null) {
+            List<MessageResponse.ReactionInfo> enrichedReactions = message.getReactions().stream()
+                    .map(r -> {
+                        User reactionUser = userRepository.findById(r.getUserId()).orElse(null);
+                        MessageResponse.ReactionInfo reactionInfo = MessageResponse.ReactionInfo.builder()
+                                .userId(r.getUserId())
+                                .emoji(r.getEmoji())
+                                .createdAt(r.getCreatedAt())
+                                .build();
+                        if (reactionUser != null) {
+                            reactionInfo.setUsername(reactionUser.getUsername());
+                        }
+                        return reactionInfo;
+                    })
+                    .collect(Collectors.toList());
+            response.setReactions(enrichedReactions);
+        }
+
+        // Enriquecer información de read receipts con usernames
+        if (message.getReadBy() != null) {
+            List<MessageResponse.ReadReceiptInfo> enrichedReadBy = message.getReadBy().stream()
+                    .map(rb -> {
+                        User readUser = userRepository.findById(rb.getUserId()).orElse(null);
+                        MessageResponse.ReadReceiptInfo readInfo = MessageResponse.ReadReceiptInfo.builder()
+                                .userId(rb.getUserId())
+                                .readAt(rb.getReadAt())
+                                .build();
+                        if (readUser != null) {
+                            readInfo.setUsername(readUser.getUsername());
+                        }
+                        return readInfo;
+                    })
+                    .collect(Collectors.toList());
+            response.setReadBy(enrichedReadBy);
+        }
+
+        return response;
+    }
+
+    /**
+     * Copia de una respuesta cacheada con el estado de lectura del usuario que consulta
+     */
+    private MessageResponse withReadState(MessageResponse cached, Long userId) {
+        boolean isRead = cached.getReadBy() != null &&
+                cached.getReadBy().stream().anyMatch(rb -> rb.getUserId().equals(userId));
+        return cached.toBuilder().isRead(isRead).build();
+    }
+
+    /**
+     * Actualiza un mensaje en la caché de recientes reutilizando los usernames ya conocidos
+     */
+    private void refreshCachedMessage(Message message, Map<Long, String> knownUsernames) {
+        MessageResponse cached = recentMessageCache.peek(message.getChatId(), message.getId()).orElse(null);
+        if (cached == null) {
+            return;
+        }
+
+        knownUsernames.putIfAbsent(cached.getSenderId(), cached.getSenderUsername());
+        if (cached.getReactions() != null) {
+            cached.getReactions().forEach(r -> knownUsernames.putIfAbsent(r.getUserId(), r.getUsername()));
+        }
+        if (cached.getReadBy() != null) {
+            cached.getReadBy().forEach(rb -> knownUsernames.putIfAbsent(rb.getUserId(), rb.getUsername()));
+        }
+
+        MessageResponse refreshed = MessageResponse.fromMessage(message);
+        refreshed.setSenderUsername(cached.getSenderUsername());
+        refreshed.setSenderProfilePicture(cached.getSenderProfilePicture());
+        if (refreshed.getReactions() != null) {
+            refreshed.getReactions().forEach(r -> r.setUsername(resolveUsername(r.getUserId(), knownUsernames)));
+        }
+        if (refreshed.getReadBy() != null) {
+            refreshed.getReadBy().forEach(rb -> rb.setUsername(resolveUsername(rb.getUserId(), knownUsernames)));
+        }
+
+        recentMessageCache.update(message.getChatId(), message.getId(), current -> refreshed);
+    }
+
+    private String resolveUsername(Long userId, Map<Long, String> knownUsernames) {
+        return knownUsernames.computeIfAbsent(userId,
+                id -> userRepository.findById(id).map(User::getUsername).orElse(null));
+    }
+
     /**
      * Clase auxiliar para respuesta de typing indicator
      */
@@ -1,17 +1,15 @@
 package com.chat.module.contact.controller;
 
-import com.chat.module.auth.dto.UserResponse;
-import com.chat.module.auth.service.UserService;
 import com.chat.module.contact.dto.AddContactRequest;
 import com.chat.module.contact.dto.ContactRequest;
 import com.chat.module.contact.dto.ContactResponse;
 import com.chat.module.contact.service.ContactService;
+import com.chat.security.ChatPrincipal;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
@@ -27,16 +25,12 @@ import java.util.Map;
 public class ContactController {
 
     private final ContactService contactService;
-    private final UserService userService;
 
     /**
      * Obtiene el ID del usuario autenticado
      */
     private Long getCurrentUserId() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        UserResponse user = userService.getUserByUsername(username);
-        return user.getId();
+        return ChatPrincipal.from(SecurityContextHolder.getContext().getAuthentication()).userId();
     }
 
     /**
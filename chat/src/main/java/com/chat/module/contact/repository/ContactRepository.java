@@ -23,6 +23,12 @@ public interface ContactRepository extends JpaRepository<Contact, Long> {
     
     Boolean existsByUserIdAndContactUserId(Long userId, Long contactUserId);
     
+    @Query("SELECT c.user.username FROM Contact c WHERE c.contactUser.id = :userId")
+    List<String> findWatcherUsernames(@Param("userId") Long userId);
+    
+    @Query("SELECT c.contactUser.username FROM Contact c WHERE c.user.id = :userId AND c.isBlocked = true")
+    List<String> findBlockedUsernames(@Param("userId") Long userId);
+    
     @Query("SELECT c FROM Contact c WHERE c.user.id = :userId AND " +
            "(LOWER(c.nickname) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(c.contactUser.username) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
@@ -8,6 +8,7 @@ import com.chat.module.contact.dto.AddContactRequest;
 import com.chat.module.contact.dto.ContactRequest;
 import com.chat.module.contact.dto.ContactResponse;
 import com.chat.module.contact.repository.ContactRepository;
+import com.chat.module.presence.service.PresenceWatcherCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -23,6 +24,7 @@ public class ContactService {
 
     private final ContactRepository contactRepository;
     private final UserRepository userRepository;
+    private final PresenceWatcherCache presenceWatcherCache;
 
     @Transactional
     public ContactResponse addContact(Long userId, ContactRequest request) {
@@ -50,6 +52,7 @@ public class ContactService {
         contact.setIsFavorite(false);
 
         contact = contactRepository.save(contact);
+        presenceWatcherCache.evict(contactUser.getId());
         log.info("Contact added successfully: {}", contact.getId());
 
         return ContactResponse.fromContact(contact);
@@ -157,6 +160,7 @@ public class ContactService {
 
         contact.setIsBlocked(true);
         contact = contactRepository.save(contact);
+        presenceWatcherCache.evict(userId);
 
         log.info("Contact blocked successfully: {}", contactId);
         return ContactResponse.fromContact(contact);
@@ -175,6 +179,7 @@ public class ContactService {
 
         contact.setIsBlocked(false);
         contact = contactRepository.save(contact);
+        presenceWatcherCache.evict(userId);
 
         log.info("Contact unblocked successfully: {}", contactId);
         return ContactResponse.fromContact(contact);
@@ -228,6 +233,7 @@ public class ContactService {
         }
 
         contactRepository.delete(contact);
+        presenceWatcherCache.evict(contact.getContactUser().getId());
         log.info("Contact deleted successfully: {}", contactId);
     }
 
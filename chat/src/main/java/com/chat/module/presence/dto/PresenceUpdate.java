@@ -0,0 +1,24 @@
+package com.chat.module.presence.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cambio de estado de un usuario, entregado en /user/queue/presence a sus contactos y a sus chats privados
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceUpdate {
+
+    private Long userId;
+
+    private String username;
+
+    private String status;
+
+    private LocalDateTime lastSeen;
+}
@@ -0,0 +1,97 @@
+package com.chat.module.presence.service;
+
+import com.chat.module.presence.dto.PresenceUpdate;
+import com.chat.websocket.BroadcastPayload;
+import com.chat.websocket.ChatBroadcaster;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entrega cada cambio de presencia solo a los observadores del usuario ({@link PresenceWatcherCache}),
+ * en /user/queue/presence. El payload se serializa una vez para todos. Corre en un hilo propio para no
+ * retrasar la escritura de estados. Los cambios se agrupan por usuario: mientras uno espera su turno, uno
+ * nuevo lo reemplaza, así que bajo saturación se omiten estados intermedios pero nunca el último
+ * (p. ej. el OFFLINE final). La cola crece como mucho hasta un aviso por usuario.
+ */
+@Component
+@Slf4j
+public class PresenceBroadcaster {
+
+    private static final String DESTINATION = "/queue/presence";
+
+    private final PresenceWatcherCache watcherCache;
+    private final ChatBroadcaster broadcaster;
+    private final ThreadPoolExecutor executor;
+    /**
+     * Último cambio aún no entregado de cada usuario
+     */
+    private final Map<Long, PresenceChangedEvent> pending = new ConcurrentHashMap<>();
+    private final Counter notifications;
+    private final Counter coalesced;
+
+    public PresenceBroadcaster(PresenceWatcherCache watcherCache, ChatBroadcaster broadcaster,
+                               MeterRegistry meterRegistry) {
+        this.watcherCache = watcherCache;
+        this.broadcaster = broadcaster;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "presence-fanout");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.notifications = Counter.builder("chat.presence.notifications")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("chat.presence.coalesced")
+                .register(meterRegistry);
+        Gauge.builder("chat.presence.pending_notifications", pending, Map::size)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    @EventListener
+    public void onPresenceChanged(PresenceChangedEvent event) {
+        if (pending.put(event.userId(), event) != null) {
+            coalesced.increment();
+            return;
+        }
+        executor.execute(() -> fanOut(event.userId()));
+    }
+
+    private void fanOut(Long userId) {
+        PresenceChangedEvent event = pending.remove(userId);
+        if (event == null) {
+            return;
+        }
+        try {
+            Set<String> watchers = watcherCache.watchersOf(event.userId());
+            if (watchers.isEmpty()) {
+                return;
+            }
+            BroadcastPayload<?> payload = broadcaster.prepare(new PresenceUpdate(
+                    event.userId(), event.username(), event.status().name(), event.lastSeen()));
+            for (String watcher : watchers) {
+                broadcaster.sendToUser(watcher, DESTINATION, payload);
+            }
+            notifications.increment(watchers.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not fan out presence of user {}: {}", event.userId(), e.getMessage());
+        }
+    }
+}
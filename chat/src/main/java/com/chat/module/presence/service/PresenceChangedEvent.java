@@ -0,0 +1,11 @@
+package com.chat.module.presence.service;
+
+import com.chat.model.postgres.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cambio de estado ya consolidado por {@link PresenceRegistry} (como mucho uno por usuario y ventana)
+ */
+public record PresenceChangedEvent(Long userId, String username, User.UserStatus status, LocalDateTime lastSeen) {
+}
@@ -0,0 +1,347 @@
+package com.chat.module.presence.service;
+
+import com.chat.cluster.ClusterFanout;
+import com.chat.config.ClusterConfig;
+import com.chat.config.PresenceConfig;
+import com.chat.model.postgres.User;
+import com.chat.module.auth.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Presencia de los usuarios a partir de sus sesiones WebSocket en este nodo.
+ * Cuenta las sesiones de cada usuario (varios dispositivos), recuerda su última actividad y acumula los cambios
+ * de estado, que se escriben en users.status / users.last_seen por lotes cada chat.presence.flush-interval-ms.
+ * Un conecta-desconecta dentro de la misma ventana no llega a la base de datos: la entrada del usuario sigue
+ * pendiente de escribir tras cerrarse su última sesión y una reconexión la reutiliza, con el último estado escrito.
+ * Cada cambio escrito se publica como {@link PresenceChangedEvent}, así que una conexión inestable genera como
+ * mucho un aviso por ventana.
+ * En modo postgres no se escribe OFFLINE mientras el usuario tenga sesiones en otro nodo. En modo relay no hay
+ * registro de sesiones remotas: cerrar la última sesión en un nodo escribe OFFLINE aunque el usuario siga
+ * conectado en otro, hasta que su siguiente actividad allí lo devuelva a ONLINE.
+ * La inactividad se detecta con una {@link TimingWheel}: tras chat.presence.away-after-seconds sin actividad el
+ * usuario pasa a AWAY y tras chat.presence.offline-after-seconds a OFFLINE; cualquier actividad lo devuelve a ONLINE.
+ * Registrar actividad solo escribe una marca de tiempo: la rueda comprueba el plazo real al vencer cada entrada.
+ */
+@Component
+@Slf4j
+public class PresenceRegistry {
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<ClusterFanout> clusterFanout;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PresenceConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final TimingWheel<UserPresence> idleWheel;
+    private final long awayAfterMs;
+    private final long offlineAfterMs;
+    private final Counter flushedUpdates;
+
+    private final Map<Long, UserPresence> users = new ConcurrentHashMap<>();
+    private final Map<String, Long> sessionUsers = new ConcurrentHashMap<>();
+    /**
+     * Usuarios cuyo estado cambió desde la última escritura
+     */
+    private final Map<Long, UserPresence> dirty = new ConcurrentHashMap<>();
+
+    public PresenceRegistry(UserRepository userRepository, PlatformTransactionManager transactionManager,
+                            ObjectProvider<ClusterFanout> clusterFanout, ApplicationEventPublisher eventPublisher,
+                            PresenceConfig config, ClusterConfig clusterConfig, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clusterFanout = clusterFanout;
+        this.eventPublisher = eventPublisher;
+        this.config = config;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "presence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.idleWheel = new TimingWheel<>(config.getWheelSlots(), config.getWheelTickMs(), System.currentTimeMillis());
+        this.awayAfterMs = config.getAwayAfterSeconds() * 1000L;
+        this.offlineAfterMs = Math.max(config.getOfflineAfterSeconds() * 1000L, awayAfterMs);
+        this.flushedUpdates = Counter.builder("chat.presence.flushed_updates")
+                .register(meterRegistry);
+        Gauge.builder("chat.presence.idle_timers", idleWheel, TimingWheel::size)
+                .register(meterRegistry);
+        Gauge.builder("chat.presence.online_users", users, Map::size)
+                .register(meterRegistry);
+        Gauge.builder("chat.presence.pending_updates", dirty, Map::size)
+                .register(meterRegistry);
+        if (clusterConfig.getMode() == ClusterConfig.Mode.RELAY) {
+            log.warn("Presence in relay mode cannot see sessions on other nodes: a user connected to several "
+                    + "nodes is written OFFLINE when their last session on one node closes");
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::flushSafely,
+                config.getFlushIntervalMs(), config.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::advanceIdleWheelSafely,
+                config.getWheelTickMs(), config.getWheelTickMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Escribe lo pendiente antes de cerrar; las sesiones abiertas se dan por terminadas
+     */
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+        users.values().forEach(presence -> {
+            synchronized (presence) {
+                presence.sessions = 0;
+                markDirty(presence, User.UserStatus.OFFLINE);
+            }
+        });
+        flushSafely();
+    }
+
+    public void sessionOpened(String sessionId, Long userId, String username) {
+        if (sessionUsers.putIfAbsent(sessionId, userId) != null) {
+            return;
+        }
+        // El conteo cambia dentro de compute, atómico con el alta y la baja de la entrada: un cierre
+        // concurrente de otra sesión del usuario no puede quitarla entre la búsqueda y el incremento
+        users.compute(userId, (id, current) -> {
+            UserPresence presence = current;
+            if (presence == null) {
+                // Una entrada aún pendiente de escribir conserva persistedStatus: reconectar no genera otra escritura
+                UserPresence pending = dirty.get(id);
+                presence = pending != null ? pending : new UserPresence(id, username);
+            }
+            synchronized (presence) {
+                presence.sessions++;
+                presence.lastActivity = System.currentTimeMillis();
+                if (presence.sessions == 1 || presence.status != User.UserStatus.ONLINE) {
+                    markDirty(presence, User.UserStatus.ONLINE);
+                }
+                scheduleIdleCheck(presence);
+            }
+            return presence;
+        });
+    }
+
+    public void sessionClosed(String sessionId) {
+        Long userId = sessionUsers.remove(sessionId);
+        if (userId == null) {
+            return;
+        }
+        users.computeIfPresent(userId, (id, presence) -> {
+            synchronized (presence) {
+                if (--presence.sessions > 0) {
+                    return presence;
+                }
+                markDirty(presence, User.UserStatus.OFFLINE);
+                // La entrada sigue en dirty hasta escribirse
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Frame entrante de la sesión: solo actualiza la marca en memoria
+     */
+    public void touch(String sessionId) {
+        Long userId = sessionUsers.get(sessionId);
+        if (userId != null) {
+            touchUser(userId);
+        }
+    }
+
+    /**
+     * Actividad del usuario por cualquier vía (también REST); sin sesiones WebSocket en este nodo no hace nada
+     */
+    public void touchUser(Long userId) {
+        UserPresence presence = users.get(userId);
+        if (presence == null) {
+            return;
+        }
+        presence.lastActivity = System.currentTimeMillis();
+        if (presence.status != User.UserStatus.ONLINE) {
+            synchronized (presence) {
+                if (presence.sessions > 0 && presence.status != User.UserStatus.ONLINE) {
+                    markDirty(presence, User.UserStatus.ONLINE);
+                    scheduleIdleCheck(presence);
+                }
+            }
+        }
+    }
+
+    public boolean isOnline(Long userId) {
+        return users.containsKey(userId);
+    }
+
+    /**
+     * Última actividad registrada en este nodo, o null si el usuario no tiene sesiones aquí
+     */
+    public Instant lastActivity(Long userId) {
+        UserPresence presence = users.get(userId);
+        return presence != null ? Instant.ofEpochMilli(presence.lastActivity) : null;
+    }
+
+    /**
+     * Programa la siguiente comprobación de inactividad según el estado actual (con el lock de presence)
+     */
+    private void scheduleIdleCheck(UserPresence presence) {
+        if (presence.inWheel) {
+            return;
+        }
+        long deadline = switch (presence.status) {
+            case ONLINE -> presence.lastActivity + awayAfterMs;
+            case AWAY -> presence.lastActivity + offlineAfterMs;
+            case OFFLINE -> -1;
+        };
+        if (deadline >= 0) {
+            presence.inWheel = true;
+            idleWheel.schedule(presence, deadline);
+        }
+    }
+
+    private void advanceIdleWheel() {
+        long now = System.currentTimeMillis();
+        for (UserPresence presence : idleWheel.advance(now)) {
+            synchronized (presence) {
+                presence.inWheel = false;
+                if (presence.sessions <= 0) {
+                    continue;
+                }
+                long idle = now - presence.lastActivity;
+                if (presence.status == User.UserStatus.ONLINE && idle >= awayAfterMs) {
+                    markDirty(presence, User.UserStatus.AWAY);
+                }
+                if (presence.status == User.UserStatus.AWAY && idle >= offlineAfterMs) {
+                    markDirty(presence, User.UserStatus.OFFLINE);
+                }
+                // Con actividad reciente el plazo se recalcula desde la última marca
+                scheduleIdleCheck(presence);
+            }
+        }
+    }
+
+    private void advanceIdleWheelSafely() {
+        try {
+            advanceIdleWheel();
+        } catch (RuntimeException e) {
+            log.warn("Could not advance presence idle timers: {}", e.getMessage());
+        }
+    }
+
+    private void markDirty(UserPresence presence, User.UserStatus status) {
+        presence.status = status;
+        dirty.put(presence.userId, presence);
+    }
+
+    private void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<PendingUpdate> updates = new ArrayList<>();
+        for (Long userId : List.copyOf(dirty.keySet())) {
+            UserPresence presence = dirty.remove(userId);
+            if (presence == null) {
+                continue;
+            }
+            synchronized (presence) {
+                if (presence.status == presence.persistedStatus) {
+                    continue;
+                }
+                // Con sesiones en otro nodo el usuario sigue conectado: ese nodo escribirá su baja
+                if (presence.status == User.UserStatus.OFFLINE && hasRemoteSessions(presence.username)) {
+                    presence.persistedStatus = User.UserStatus.OFFLINE;
+                    continue;
+                }
+                updates.add(new PendingUpdate(presence, presence.status,
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(presence.lastActivity), ZoneId.systemDefault())));
+            }
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(tx -> updates.forEach(update ->
+                    userRepository.updateUserStatus(update.presence.userId, update.status, update.lastSeen)));
+        } catch (RuntimeException e) {
+            // Se reintenta en la siguiente ventana salvo que el estado haya vuelto a cambiar o el usuario
+            // haya reconectado con otra entrada
+            updates.forEach(update -> {
+                UserPresence current = users.get(update.presence.userId);
+                if (current == null || current == update.presence) {
+                    dirty.putIfAbsent(update.presence.userId, update.presence);
+                }
+            });
+            throw e;
+        }
+        for (PendingUpdate update : updates) {
+            synchronized (update.presence) {
+                update.presence.persistedStatus = update.status;
+            }
+            eventPublisher.publishEvent(new PresenceChangedEvent(update.presence.userId, update.presence.username,
+                    update.status, update.lastSeen));
+        }
+        flushedUpdates.increment(updates.size());
+        log.debug("Flushed {} presence updates", updates.size());
+    }
+
+    private boolean hasRemoteSessions(String username) {
+        ClusterFanout fanout = clusterFanout.getIfAvailable();
+        return fanout != null && fanout.hasRemoteSessions(username);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Could not flush presence updates: {}", e.getMessage());
+        }
+    }
+
+    private static final class UserPresence {
+
+        private final Long userId;
+        private final String username;
+        private int sessions;
+        private volatile long lastActivity;
+        /**
+         * Se lee sin lock en {@link #touchUser}; solo cambia con el lock de la instancia
+         */
+        private volatile User.UserStatus status;
+        /**
+         * Si tiene una comprobación pendiente en la rueda (a lo sumo una)
+         */
+        private boolean inWheel;
+        /**
+         * Último estado escrito en Postgres por este nodo (null: desconocido)
+         */
+        private User.UserStatus persistedStatus;
+
+        UserPresence(Long userId, String username) {
+            this.userId = userId;
+            this.username = username;
+        }
+    }
+
+    private record PendingUpdate(UserPresence presence, User.UserStatus status, LocalDateTime lastSeen) {
+    }
+}
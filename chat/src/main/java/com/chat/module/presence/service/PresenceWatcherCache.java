@@ -0,0 +1,76 @@
+package com.chat.module.presence.service;
+
+import com.chat.config.PresenceConfig;
+import com.chat.module.chat.repository.ChatParticipantRepository;
+import com.chat.module.contact.repository.ContactRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Usuarios a los que se notifica la presencia de cada usuario: quienes lo tienen como contacto y quienes
+ * comparten un chat privado con él, salvo los que él bloqueó. Se reutiliza durante
+ * chat.presence.watchers-cache-seconds; los cambios hechos en este nodo la descartan al instante.
+ */
+@Component
+@RequiredArgsConstructor
+public class PresenceWatcherCache {
+
+    private static final int MAX_ENTRIES = 100_000;
+
+    private final ContactRepository contactRepository;
+    private final ChatParticipantRepository chatParticipantRepository;
+    private final PresenceConfig config;
+    private final Map<Long, Watchers> watchers = new ConcurrentHashMap<>();
+
+    /**
+     * Usernames (el nombre de destino /user) de quienes observan a {@code userId}
+     */
+    public Set<String> watchersOf(Long userId) {
+        long now = System.nanoTime();
+        Watchers cached = watchers.get(userId);
+        if (cached != null && now - cached.loadedAt() < config.getWatchersCacheSeconds() * 1_000_000_000L) {
+            return cached.usernames();
+        }
+        Set<String> usernames = new HashSet<>(contactRepository.findWatcherUsernames(userId));
+        usernames.addAll(chatParticipantRepository.findPrivateChatPeerUsernames(userId));
+        List<String> blocked = contactRepository.findBlockedUsernames(userId);
+        blocked.forEach(usernames::remove);
+        Set<String> loaded = Set.copyOf(usernames);
+        if (watchers.size() >= MAX_ENTRIES) {
+            watchers.clear();
+        }
+        watchers.put(userId, new Watchers(loaded, now));
+        return loaded;
+    }
+
+    /**
+     * Descarta los observadores cacheados; dentro de una transacción, tras el commit
+     */
+    public void evict(Long... userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            for (Long userId : userIds) {
+                watchers.remove(userId);
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (Long userId : userIds) {
+                    watchers.remove(userId);
+                }
+            }
+        });
+    }
+
+    private record Watchers(Set<String> usernames, long loadedAt) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.chat.module.presence.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rueda de temporizadores con {@code slots} casillas de {@code tickMs}. Programar es O(1) y no crea una tarea
+ * por elemento; los plazos más allá de una vuelta se recortan a la última casilla, y quien recibe el elemento
+ * vencido comprueba su plazo real y lo vuelve a programar si aún no llegó (cancelación perezosa).
+ */
+final class TimingWheel<T> {
+
+    private final long tickMs;
+    private final List<T>[] slots;
+    private final int mask;
+    private int size;
+
+    /**
+     * Último tick ya procesado
+     */
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(int slots, long tickMs, long nowMs) {
+        int capacity = Integer.highestOneBit(Math.max(2, slots - 1)) << 1;
+        this.tickMs = tickMs;
+        this.slots = new List[capacity];
+        for (int i = 0; i < capacity; i++) {
+            this.slots[i] = new ArrayList<>();
+        }
+        this.mask = capacity - 1;
+        this.tick = nowMs / tickMs;
+    }
+
+    synchronized void schedule(T item, long deadlineMs) {
+        long target = Math.ceilDiv(deadlineMs, tickMs);
+        target = Math.max(tick + 1, Math.min(target, tick + slots.length));
+        slots[(int) (target & mask)].add(item);
+        size++;
+    }
+
+    /**
+     * Saca los elementos de las casillas vencidas hasta {@code nowMs}
+     */
+    synchronized List<T> advance(long nowMs) {
+        long nowTick = nowMs / tickMs;
+        List<T> expired = new ArrayList<>();
+        // Si el hilo se retrasó más de una vuelta basta con recorrer cada casilla una vez
+        long from = Math.max(tick + 1, nowTick - slots.length + 1);
+        for (long t = from; t <= nowTick; t++) {
+            List<T> slot = slots[(int) (t & mask)];
+            if (!slot.isEmpty()) {
+                expired.addAll(slot);
+                slot.clear();
+            }
+        }
+        tick = Math.max(tick, nowTick);
+        size -= expired.size();
+        return expired;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,60 @@
+package com.chat.security;
+
+import com.chat.config.JwtConfig;
+import com.chat.module.auth.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estado de cuenta activa por usuario, reutilizado durante jwt.account-status-cache-seconds.
+ * Con el principal armado desde el token es la única consulta que queda por request, y solo al expirar.
+ * La desactivación en este nodo se aplica al instante; en los demás, como mucho tras el TTL.
+ */
+@Component
+@RequiredArgsConstructor
+public class AccountStatusCache {
+
+    private static final int MAX_ENTRIES = 100_000;
+
+    private final UserRepository userRepository;
+    private final JwtConfig jwtConfig;
+    private final Map<Long, Status> statuses = new ConcurrentHashMap<>();
+
+    public boolean isActive(Long userId) {
+        long now = System.nanoTime();
+        Status status = statuses.get(userId);
+        if (status != null && now - status.checkedAt() < jwtConfig.getAccountStatusCacheSeconds() * 1_000_000_000L) {
+            return status.active();
+        }
+        boolean active = userRepository.findIsActiveById(userId).orElse(false);
+        if (statuses.size() >= MAX_ENTRIES) {
+            statuses.clear();
+        }
+        statuses.put(userId, new Status(active, now));
+        return active;
+    }
+
+    /**
+     * Descarta el estado cacheado; dentro de una transacción, tras el commit
+     */
+    public void evict(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            statuses.remove(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                statuses.remove(userId);
+            }
+        });
+    }
+
+    private record Status(boolean active, long checkedAt) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.chat.security;
+
+import com.chat.exception.CustomExceptions;
+import com.chat.model.postgres.User;
+import org.springframework.security.core.Authentication;
+
+import java.security.Principal;
+
+/**
+ * Usuario autenticado. En una sesión STOMP se resuelve una sola vez en el CONNECT; en REST lo arma
+ * {@link JwtAuthenticationFilter} con los claims del token (sin datos de presentación).
+ * Es inmutable: los handlers leen el id sin consultar la base de datos
+ * (un cambio de perfil se refleja en la siguiente conexión).
+ */
+public record ChatPrincipal(Long userId, String username, String profilePictureUrl) implements Principal {
+
+    public static ChatPrincipal of(User user) {
+        return new ChatPrincipal(user.getId(), user.getUsername(), user.getProfilePictureUrl());
+    }
+
+    /**
+     * Obtiene el ChatPrincipal del usuario de una sesión (directo o como principal de un Authentication)
+     */
+    public static ChatPrincipal from(Principal principal) {
+        if (principal instanceof ChatPrincipal chatPrincipal) {
+            return chatPrincipal;
+        }
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof ChatPrincipal chatPrincipal) {
+            return chatPrincipal;
+        }
+        throw new CustomExceptions.UnauthorizedException("User not authenticated");
+    }
+
+    /**
+     * El nombre es el que usa el broker para los destinos /user
+     */
+    @Override
+    public String getName() {
+        return username;
+    }
+}
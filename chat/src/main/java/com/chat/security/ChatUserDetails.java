@@ -0,0 +1,24 @@
+package com.chat.security;
+
+import com.chat.model.postgres.User;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * UserDetails que conserva la entidad cargada al autenticar, para que el login no vuelva a consultarla
+ */
+public class ChatUserDetails extends org.springframework.security.core.userdetails.User {
+
+    private final transient User account;
+
+    public ChatUserDetails(User account, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(account.getUsername(), password, Boolean.TRUE.equals(account.getIsActive()),
+                true, true, true, authorities);
+        this.account = account;
+    }
+
+    public User getAccount() {
+        return account;
+    }
+}
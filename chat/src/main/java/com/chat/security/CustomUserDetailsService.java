@@ -3,9 +3,11 @@ package com.chat.security;
 import com.chat.model.postgres.User;
 import com.chat.module.auth.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -16,7 +18,8 @@ import java.util.Collections;
 
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailsService implements UserDetailsService {
+@Slf4j
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -27,15 +30,14 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .orElseThrow(() -> 
                     new UsernameNotFoundException("User not found with username or email: " + usernameOrEmail));
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(),
-                user.getPasswordHash(),
-                user.getIsActive(),
-                true,
-                true,
-                true,
-                getAuthorities()
-        );
+        return new ChatUserDetails(user, user.getPasswordHash(), getAuthorities());
+    }
+
+    @Transactional(readOnly = true)
+    public User loadUserEntity(String usernameOrEmail) {
+        return userRepository.findByUsernameOrEmail(usernameOrEmail, usernameOrEmail)
+                .orElseThrow(() -> 
+                    new UsernameNotFoundException("User not found with username or email: " + usernameOrEmail));
     }
 
     @Transactional(readOnly = true)
@@ -55,6 +57,22 @@ public class CustomUserDetailsService implements UserDetailsService {
         );
     }
 
+    /**
+     * Guarda el hash regenerado con el coste actual (lo invoca DaoAuthenticationProvider tras el login)
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePasswordHash(user.getUsername(), newPassword);
+        log.info("Password hash upgraded for user: {}", user.getUsername());
+        if (user instanceof ChatUserDetails details) {
+            return new ChatUserDetails(details.getAccount(), newPassword, details.getAuthorities());
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+
     private Collection<? extends GrantedAuthority> getAuthorities() {
         return Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"));
     }
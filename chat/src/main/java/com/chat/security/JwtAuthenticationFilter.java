@@ -1,5 +1,7 @@
 package com.chat.security;
 
+import com.chat.module.auth.service.UserSessionActivityTracker;
+import com.chat.module.presence.service.PresenceRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,22 +10,34 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
+/**
+ * Autentica cada request con el access token, sin consultar la base de datos: el principal se arma con los
+ * claims del token y solo el estado de la cuenta se comprueba, a través de {@link AccountStatusCache}.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final List<GrantedAuthority> AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+
     private final JwtTokenProvider tokenProvider;
     private final CustomUserDetailsService customUserDetailsService;
+    private final AccountStatusCache accountStatusCache;
+    private final TokenRevocationList tokenRevocationList;
+    private final PresenceRegistry presenceRegistry;
+    private final UserSessionActivityTracker userSessionActivityTracker;
 
     @Override
     protected void doFilterInternal(
@@ -34,23 +48,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
+            VerifiedToken token = StringUtils.hasText(jwt) ? tokenProvider.verify(jwt).orElse(null) : null;
+            // El filtro de Bloom responde sin I/O para los tokens no revocados. Los refresh tokens solo
+            // sirven en /api/auth/refresh-token: aceptarlos aquí anularía la vida corta del access token
+            if (token != null && !token.isRefreshToken() && !tokenRevocationList.isRevoked(token)) {
+                ChatPrincipal principal = token.principal();
+                if (principal == null) {
+                    // Token emitido antes de incluir el id del usuario: se resuelve con una consulta
+                    principal = ChatPrincipal.of(customUserDetailsService.loadUserEntity(token.username()));
+                }
 
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
-                
-                if (tokenProvider.validateToken(jwt, userDetails)) {
+                if (accountStatusCache.isActive(principal.userId())) {
                     UsernamePasswordAuthenticationToken authentication = 
                         new UsernamePasswordAuthenticationToken(
-                            userDetails,
+                            principal,
                             null,
-                            userDetails.getAuthorities()
+                            AUTHORITIES
                         );
                     
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                     
-                    log.debug("Set authentication for user: {}", username);
+                    presenceRegistry.touchUser(principal.userId());
+                    userSessionActivityTracker.record(principal.userId(), token.deviceId());
+                    log.debug("Set authentication for user: {}", principal.username());
                 }
             }
         } catch (Exception ex) {
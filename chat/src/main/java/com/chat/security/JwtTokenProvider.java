@@ -1,94 +1,141 @@
 package com.chat.security;
 
 import com.chat.config.JwtConfig;
+import com.chat.model.postgres.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Emite y verifica JWT. La clave y el parser se construyen una sola vez; cada token se parsea y verifica
+ * una vez y el resultado se reutiliza hasta su expiración desde una caché acotada, indexada por el
+ * SHA-256 del token (no por un hash débil: una colisión fabricada equivaldría a saltarse la firma).
+ */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class JwtTokenProvider {
 
-    private final JwtConfig jwtConfig;
-
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = jwtConfig.getSecret().getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
+    /**
+     * Id del usuario en el access token: el filtro arma el principal sin consultar la base de datos
+     */
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String TYPE_CLAIM = "type";
+    /**
+     * Dispositivo del login que emitió el token: permite registrar la actividad de su UserSession
+     */
+    private static final String DEVICE_ID_CLAIM = "did";
 
-    public String generateToken(Authentication authentication) {
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        return generateToken(userDetails.getUsername());
+    private final JwtConfig jwtConfig;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final Map<ByteBuffer, VerifiedToken> verified = new ConcurrentHashMap<>();
+    private final Counter cacheHits;
+    private final Counter parsed;
+
+    public JwtTokenProvider(JwtConfig jwtConfig, MeterRegistry meterRegistry) {
+        this.jwtConfig = jwtConfig;
+        this.signingKey = Keys.hmacShaKeyFor(jwtConfig.getSecret().getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        this.cacheHits = Counter.builder("chat.security.jwt.verifications")
+                .tag("result", "cached")
+                .register(meterRegistry);
+        this.parsed = Counter.builder("chat.security.jwt.verifications")
+                .tag("result", "parsed")
+                .register(meterRegistry);
     }
 
-    public String generateToken(String username) {
+    public String generateToken(User user, String deviceId) {
         Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, username, jwtConfig.getExpiration());
+        claims.put(USER_ID_CLAIM, user.getId());
+        if (deviceId != null) {
+            claims.put(DEVICE_ID_CLAIM, deviceId);
+        }
+        return createToken(claims, user.getUsername(), jwtConfig.getExpiration());
     }
 
-    public String generateRefreshToken(String username) {
+    public String generateRefreshToken(User user, String deviceId) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("type", "refresh");
-        return createToken(claims, username, jwtConfig.getRefreshExpiration());
+        claims.put(TYPE_CLAIM, "refresh");
+        claims.put(USER_ID_CLAIM, user.getId());
+        if (deviceId != null) {
+            claims.put(DEVICE_ID_CLAIM, deviceId);
+        }
+        return createToken(claims, user.getUsername(), jwtConfig.getRefreshExpiration());
     }
 
     private String createToken(Map<String, Object> claims, String subject, Long expiration) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
 
+        // jti: permite revocar el token concreto (logout, rotación del refresh token)
         return Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .claims(claims)
                 .subject(subject)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        return extractClaims(token).getSubject();
-    }
-
-    private Claims extractClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-
-    public Date getExpirationDateFromToken(String token) {
-        return extractClaims(token).getExpiration();
-    }
+    /**
+     * Verifica firma y expiración con un único parseo; vacío si el token no es válido
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        ByteBuffer key = ByteBuffer.wrap(sha256(token));
+        Instant now = Instant.now();
+        VerifiedToken cached = verified.get(key);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                cacheHits.increment();
+                return Optional.of(cached);
+            }
+            verified.remove(key, cached);
+            return Optional.empty();
+        }
 
-    public boolean isTokenExpired(String token) {
-        try {
-            Date expiration = getExpirationDateFromToken(token);
-            return expiration.before(new Date());
-        } catch (Exception e) {
-            return true;
+        VerifiedToken verifiedToken = parse(token);
+        if (verifiedToken == null) {
+            return Optional.empty();
         }
+        remember(key, verifiedToken, now);
+        return Optional.of(verifiedToken);
     }
 
-    public boolean validateToken(String token) {
+    private VerifiedToken parse(String token) {
+        parsed.increment();
         try {
-            Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token);
-            return true;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            Number userId = claims.get(USER_ID_CLAIM, Number.class);
+            return new VerifiedToken(
+                    claims.getId(),
+                    claims.getSubject(),
+                    userId == null ? null : userId.longValue(),
+                    claims.get(TYPE_CLAIM, String.class),
+                    claims.getExpiration().toInstant(),
+                    claims.get(DEVICE_ID_CLAIM, String.class));
         } catch (SignatureException e) {
             log.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -99,12 +146,30 @@ public class JwtTokenProvider {
             log.error("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             log.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            log.error("Invalid JWT token: {}", e.getMessage());
         }
-        return false;
+        return null;
     }
 
-    public boolean validateToken(String token, UserDetails userDetails) {
-        final String username = getUsernameFromToken(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    /**
+     * Guarda un token verificado; si la caché está llena se purgan los expirados y, si no alcanza, no se guarda
+     */
+    private void remember(ByteBuffer key, VerifiedToken token, Instant now) {
+        if (verified.size() >= jwtConfig.getVerifiedCacheSize()) {
+            verified.values().removeIf(entry -> entry.isExpired(now));
+            if (verified.size() >= jwtConfig.getVerifiedCacheSize()) {
+                return;
+            }
+        }
+        verified.put(key, token);
+    }
+
+    private static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,147 @@
+package com.chat.security;
+
+import com.chat.config.JwtConfig;
+import com.chat.module.auth.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens revocados antes de su expiración (logout y refresh tokens ya rotados).
+ * La tabla revoked_tokens es la fuente de verdad; delante hay un filtro de Bloom en memoria, así que el caso
+ * común (token no revocado) no hace I/O y solo un positivo, real o falso, se confirma en la base de datos.
+ * Las revocaciones de otros nodos se incorporan leyendo la tabla cada jwt.revocation.sync-seconds, y el filtro
+ * se reconstruye periódicamente para descartar los tokens ya expirados.
+ */
+@Component
+@Slf4j
+public class TokenRevocationList {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final JwtConfig.Revocation config;
+    private final ScheduledExecutorService scheduler;
+    private final Counter bloomNegatives;
+    private final Counter bloomPositives;
+    private final Counter falsePositives;
+
+    private volatile BloomFilter filter;
+    private volatile LocalDateTime syncedUntil;
+
+    public TokenRevocationList(RevokedTokenRepository revokedTokenRepository, JwtConfig jwtConfig,
+                               MeterRegistry meterRegistry) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.config = jwtConfig.getRevocation();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocation-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.bloomNegatives = Counter.builder("chat.security.revocation.checks")
+                .tag("result", "bloom-negative")
+                .register(meterRegistry);
+        this.bloomPositives = Counter.builder("chat.security.revocation.checks")
+                .tag("result", "revoked")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("chat.security.revocation.checks")
+                .tag("result", "false-positive")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        rebuild();
+        scheduler.scheduleWithFixedDelay(this::syncSafely,
+                config.getSyncSeconds(), config.getSyncSeconds(), TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::rebuildSafely,
+                config.getRebuildMinutes(), config.getRebuildMinutes(), TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        if (token.tokenId() == null) {
+            return false;
+        }
+        if (!filter.mightContain(token.tokenId())) {
+            bloomNegatives.increment();
+            return false;
+        }
+        if (revokedTokenRepository.existsById(token.tokenId())) {
+            bloomPositives.increment();
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    /**
+     * Revoca el token hasta su expiración; false si ya estaba revocado o no tiene id
+     */
+    public boolean revoke(VerifiedToken token) {
+        if (token.tokenId() == null) {
+            return false;
+        }
+        int inserted = revokedTokenRepository.insertIfAbsent(token.tokenId(), token.userId(),
+                LocalDateTime.ofInstant(token.expiresAt(), ZoneId.systemDefault()), LocalDateTime.now());
+        filter.put(token.tokenId());
+        return inserted == 1;
+    }
+
+    /**
+     * Incorpora las revocaciones hechas en otros nodos desde la última lectura
+     */
+    private void sync() {
+        // Margen para revocaciones con marca de tiempo de un nodo con el reloj algo atrasado
+        LocalDateTime now = LocalDateTime.now();
+        List<String> jtis = revokedTokenRepository.findJtisRevokedSince(syncedUntil.minusSeconds(config.getSyncSeconds() * 2L));
+        BloomFilter current = filter;
+        jtis.forEach(current::put);
+        syncedUntil = now;
+    }
+
+    /**
+     * Nuevo filtro con solo los tokens aún no expirados, dimensionado para el doble de los actuales
+     */
+    private void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        int deleted = revokedTokenRepository.deleteExpired(now);
+        List<String> jtis = revokedTokenRepository.findActiveJtis(now);
+        BloomFilter rebuilt = new BloomFilter(Math.max(config.getExpectedTokens(), jtis.size() * 2L),
+                config.getFalsePositiveRate());
+        jtis.forEach(rebuilt::put);
+        filter = rebuilt;
+        syncedUntil = now;
+        // Lo revocado mientras se construía el filtro nuevo se recupera con la siguiente sincronización
+        sync();
+        log.info("Token revocation filter rebuilt with {} revoked tokens ({} expired removed)", jtis.size(), deleted);
+    }
+
+    private void syncSafely() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("Could not sync revoked tokens: {}", e.getMessage());
+        }
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild token revocation filter: {}", e.getMessage());
+        }
+    }
+}
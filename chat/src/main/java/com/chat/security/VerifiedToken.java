@@ -0,0 +1,26 @@
+package com.chat.security;
+
+import java.time.Instant;
+
+/**
+ * Claims de un JWT cuya firma ya se verificó. {@code userId} y {@code tokenId} (jti) son nulos en tokens
+ * emitidos antes de incluirlos; {@code deviceId}, también en los emitidos sin dispositivo (registro).
+ */
+public record VerifiedToken(String tokenId, String username, Long userId, String type, Instant expiresAt,
+                            String deviceId) {
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+
+    public boolean isRefreshToken() {
+        return "refresh".equals(type);
+    }
+
+    /**
+     * Principal armado solo con los claims; null si el token no trae el id del usuario
+     */
+    public ChatPrincipal principal() {
+        return userId == null ? null : new ChatPrincipal(userId, username, null);
+    }
+}
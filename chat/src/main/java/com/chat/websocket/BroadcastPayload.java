@@ -0,0 +1,57 @@
+package com.chat.websocket;
+
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Evento ya serializado: los mismos bytes se reutilizan para cada destino, sesión y respuesta REST
+ */
+public final class BroadcastPayload<T> {
+
+    /**
+     * Header con el que el mensaje publicado lleva su BroadcastPayload hasta el canal de salida
+     */
+    public static final String HEADER = "chatBroadcastPayload";
+
+    private final T value;
+    private final byte[] bytes;
+    private final MimeType contentType;
+
+    /**
+     * Versión CBOR, calculada la primera vez que una sesión binaria la necesita
+     */
+    private volatile byte[] cborBytes;
+
+    BroadcastPayload(T value, byte[] bytes, MimeType contentType) {
+        this.value = value;
+        this.bytes = bytes;
+        this.contentType = contentType;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * Bytes compartidos: no deben modificarse
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public MimeType getContentType() {
+        return contentType;
+    }
+
+    public boolean isJson() {
+        return MimeTypeUtils.APPLICATION_JSON.equalsTypeAndSubtype(contentType);
+    }
+
+    byte[] getCborBytes() {
+        return cborBytes;
+    }
+
+    void setCborBytes(byte[] cborBytes) {
+        this.cborBytes = cborBytes;
+    }
+}
@@ -0,0 +1,53 @@
+package com.chat.websocket;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Escribe en la respuesta HTTP los mismos bytes JSON que se difundieron por WebSocket
+ */
+public class BroadcastPayloadHttpMessageConverter extends AbstractHttpMessageConverter<BroadcastPayload<?>> {
+
+    public BroadcastPayloadHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(@NonNull Class<?> clazz) {
+        return BroadcastPayload.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canWrite(MediaType mediaType) {
+        return mediaType == null || MediaType.APPLICATION_JSON.isCompatibleWith(mediaType);
+    }
+
+    @Override
+    @NonNull
+    protected BroadcastPayload<?> readInternal(@NonNull Class<? extends BroadcastPayload<?>> clazz,
+                                               @NonNull HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("BroadcastPayload is write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(@NonNull BroadcastPayload<?> payload, MediaType contentType) {
+        return (long) payload.getBytes().length;
+    }
+
+    @Override
+    protected void writeInternal(@NonNull BroadcastPayload<?> payload,
+                                 @NonNull HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(payload.getBytes());
+    }
+}
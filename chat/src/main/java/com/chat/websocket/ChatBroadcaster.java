@@ -0,0 +1,93 @@
+package com.chat.websocket;
+
+import com.chat.cluster.ClusterFanout;
+import com.chat.cluster.RemoteBroadcastEvent;
+import com.chat.exception.CustomExceptions;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Publica eventos en el broker serializándolos una sola vez.
+ * Los Strings se envían como texto plano, igual que con StringMessageConverter.
+ * Con un {@link ClusterFanout} activo, cada envío se replica también en los demás nodos.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChatBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<ClusterFanout> clusterFanout;
+
+    /**
+     * Serializa el valor una vez para reutilizarlo en todos los envíos
+     */
+    public <T> BroadcastPayload<T> prepare(T value) {
+        if (value instanceof String text) {
+            return new BroadcastPayload<>(value, text.getBytes(StandardCharsets.UTF_8), MimeTypeUtils.TEXT_PLAIN);
+        }
+        try {
+            return new BroadcastPayload<>(value, objectMapper.writeValueAsBytes(value), MimeTypeUtils.APPLICATION_JSON);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize broadcast payload: {}", e.getMessage());
+            throw new CustomExceptions.InternalServerErrorException("Could not serialize broadcast payload");
+        }
+    }
+
+    public void send(String destination, Object value) {
+        send(destination, prepare(value));
+    }
+
+    public void send(String destination, BroadcastPayload<?> payload) {
+        deliver(destination, payload);
+        clusterFanout.ifAvailable(fanout -> fanout.publish(destination, payload.getBytes(), payload.getContentType()));
+    }
+
+    /**
+     * Entrega en el broker local lo publicado por otro nodo, sin volver a replicarlo
+     */
+    @EventListener
+    public void onRemoteBroadcast(RemoteBroadcastEvent event) {
+        deliver(event.destination(), new BroadcastPayload<>(null, event.payload(), event.contentType()));
+    }
+
+    private void deliver(String destination, BroadcastPayload<?> payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(payload.getContentType());
+        accessor.setHeader(BroadcastPayload.HEADER, payload);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(payload.getBytes(), accessor.getMessageHeaders()));
+    }
+
+    public void sendToUser(String user, String destination, Object value) {
+        sendToUser(user, destination, prepare(value));
+    }
+
+    /**
+     * Equivalente a convertAndSendToUser, sin volver a pasar por el conversor.
+     * En cluster solo se reenvía a los nodos donde el usuario tiene sesiones.
+     */
+    public void sendToUser(String user, String destination, BroadcastPayload<?> payload) {
+        String prefix = messagingTemplate.getUserDestinationPrefix();
+        String encodedUser = StringUtils.replace(user, "/", "%2F");
+        String path = destination.startsWith("/") ? destination : "/" + destination;
+        String userDestination = prefix + encodedUser + path;
+        deliver(userDestination, payload);
+        clusterFanout.ifAvailable(fanout ->
+                fanout.publishToUser(user, userDestination, payload.getBytes(), payload.getContentType()));
+    }
+}
@@ -0,0 +1,172 @@
+package com.chat.websocket;
+
+import com.chat.cluster.RelayMembershipRevocations;
+import com.chat.exception.CustomExceptions;
+import com.chat.module.chat.cache.ChatMembershipCache;
+import com.chat.module.chat.cache.ChatMembershipRevokedEvent;
+import com.chat.security.ChatPrincipal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Autoriza los SUBSCRIBE a /topic/chat.{chatId} (y sus subdestinos, p. ej. /topic/chat.{chatId}.typing)
+ * contra {@link ChatMembershipCache}.
+ * Recuerda las suscripciones aceptadas para cerrarlas en el broker cuando el usuario deja el chat.
+ * Los topics internos del cluster ({@link RelayMembershipRevocations#DESTINATION_PREFIX}) quedan cerrados a los clientes.
+ */
+@Component
+@Slf4j
+public class ChatSubscriptionInterceptor implements ChannelInterceptor {
+
+    private static final String CHAT_TOPIC_PREFIX = "/topic/chat";
+    private static final Pattern CHAT_TOPIC = Pattern.compile("/topic/chat\\.(\\d+)(\\.[a-z]+)?");
+
+    private final ChatMembershipCache membershipCache;
+    private final MessageChannel brokerChannel;
+    private final Map<String, SessionSubscriptions> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+
+    public ChatSubscriptionInterceptor(ChatMembershipCache membershipCache,
+                                       @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel) {
+        this.membershipCache = membershipCache;
+        this.brokerChannel = brokerChannel;
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getSessionId() == null) {
+            return message;
+        }
+        if (StompCommand.SEND.equals(accessor.getCommand()) || StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            String destination = accessor.getDestination();
+            if (destination != null && destination.startsWith(RelayMembershipRevocations.DESTINATION_PREFIX)) {
+                throw new CustomExceptions.ForbiddenException("Access denied to this destination");
+            }
+        }
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())) {
+            authorize(accessor);
+        } else if (StompCommand.UNSUBSCRIBE.equals(accessor.getCommand())) {
+            SessionSubscriptions subscriptions = sessions.get(accessor.getSessionId());
+            if (subscriptions != null) {
+                subscriptions.chatBySubscription.remove(accessor.getSubscriptionId());
+            }
+        }
+        return message;
+    }
+
+    private void authorize(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith("/topic/")) {
+            return;
+        }
+        // Los brokers interpretan patrones: /topic/chat.** (o chat.# en RabbitMQ) recibiría todos los chats
+        if (destination.indexOf('*') >= 0 || destination.indexOf('?') >= 0 || destination.indexOf('{') >= 0) {
+            throw new CustomExceptions.ForbiddenException("Wildcard subscriptions are not allowed");
+        }
+        if (!destination.startsWith(CHAT_TOPIC_PREFIX)) {
+            return;
+        }
+        Matcher matcher = CHAT_TOPIC.matcher(destination);
+        if (!matcher.matches()) {
+            throw new CustomExceptions.ForbiddenException("Access denied to this chat");
+        }
+
+        Long chatId = Long.valueOf(matcher.group(1));
+        Long userId = ChatPrincipal.from(accessor.getUser()).userId();
+        // La sesión se registra antes de consultar la caché para liberar la entrada del usuario al desconectarse
+        SessionSubscriptions subscriptions = sessions.computeIfAbsent(accessor.getSessionId(), id -> {
+            sessionsByUser.computeIfAbsent(userId, user -> ConcurrentHashMap.newKeySet()).add(id);
+            return new SessionSubscriptions(userId, accessor.getUser());
+        });
+        if (!membershipCache.isMember(userId, chatId)) {
+            log.warn("Rejected subscription of user {} to {}", userId, destination);
+            throw new CustomExceptions.ForbiddenException("Access denied to this chat");
+        }
+        subscriptions.chatBySubscription.put(accessor.getSubscriptionId(), chatId);
+    }
+
+    /**
+     * Cierra en el broker las suscripciones del usuario al chat que dejó
+     */
+    @EventListener
+    public void onMembershipRevoked(ChatMembershipRevokedEvent event) {
+        Set<String> userSessions = sessionsByUser.get(event.userId());
+        if (userSessions == null) {
+            return;
+        }
+        for (String sessionId : userSessions) {
+            SessionSubscriptions subscriptions = sessions.get(sessionId);
+            if (subscriptions == null) {
+                continue;
+            }
+            subscriptions.chatBySubscription.forEach((subscriptionId, chatId) -> {
+                if (chatId.equals(event.chatId())
+                        && subscriptions.chatBySubscription.remove(subscriptionId, chatId)) {
+                    unsubscribe(sessionId, subscriptionId, subscriptions.user);
+                }
+            });
+        }
+    }
+
+    private void unsubscribe(String sessionId, String subscriptionId, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.UNSUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setUser(user);
+        try {
+            brokerChannel.send(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+            log.info("Closed subscription {} of session {} after membership revocation", subscriptionId, sessionId);
+        } catch (RuntimeException e) {
+            log.warn("Could not close subscription {} of session {}: {}", subscriptionId, sessionId, e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        SessionSubscriptions subscriptions = sessions.remove(event.getSessionId());
+        if (subscriptions == null) {
+            return;
+        }
+        sessionsByUser.computeIfPresent(subscriptions.userId, (userId, userSessions) -> {
+            userSessions.remove(event.getSessionId());
+            if (!userSessions.isEmpty()) {
+                return userSessions;
+            }
+            // Sin sesiones del usuario en este nodo su entrada deja de ser útil
+            membershipCache.evict(userId);
+            return null;
+        });
+    }
+
+    private static final class SessionSubscriptions {
+
+        private final Long userId;
+        private final Principal user;
+        private final Map<String, Long> chatBySubscription = new ConcurrentHashMap<>();
+
+        SessionSubscriptions(Long userId, Principal user) {
+            this.userId = userId;
+            this.user = user;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.chat.websocket;
+
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Mide los frames que salen por cada sesión, distinguiendo las que negociaron permessage-deflate.
+ * Se usan las extensiones aceptadas en el handshake, no las ofrecidas por el cliente: con la compresión
+ * desactivada o rechazada por Tomcat la sesión cuenta como sin compresión. Con SockJS solo el transporte
+ * WebSocket puede negociarla.
+ */
+public class CompressionMetricsWebSocketHandlerDecorator extends WebSocketHandlerDecorator {
+
+    private static final String SESSION_ATTRIBUTE = "chat.perMessageDeflate";
+
+    private final WebSocketCompressionMetrics metrics;
+
+    public CompressionMetricsWebSocketHandlerDecorator(WebSocketHandler delegate, WebSocketCompressionMetrics metrics) {
+        super(delegate);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+        boolean deflate = session.getExtensions().stream()
+                .anyMatch(extension -> PerMessageDeflateFilter.EXTENSION.equalsIgnoreCase(extension.getName()));
+        session.getAttributes().put(SESSION_ATTRIBUTE, deflate);
+        metrics.sessionOpened(deflate);
+        super.afterConnectionEstablished(new MeteredSession(session, deflate, metrics));
+    }
+
+    @Override
+    public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus) throws Exception {
+        if (session.getAttributes().remove(SESSION_ATTRIBUTE) instanceof Boolean deflate) {
+            metrics.sessionClosed(deflate);
+        }
+        super.afterConnectionClosed(session, closeStatus);
+    }
+
+    private static final class MeteredSession extends WebSocketSessionDecorator {
+
+        private final boolean deflate;
+        private final WebSocketCompressionMetrics metrics;
+
+        MeteredSession(WebSocketSession delegate, boolean deflate, WebSocketCompressionMetrics metrics) {
+            super(delegate);
+            this.deflate = deflate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void sendMessage(@NonNull WebSocketMessage<?> message) throws IOException {
+            if (metrics.frameSent(deflate, message.getPayloadLength())) {
+                metrics.sample(payloadBytes(message));
+            }
+            super.sendMessage(message);
+        }
+
+        private static byte[] payloadBytes(WebSocketMessage<?> message) {
+            if (message instanceof TextMessage text) {
+                return text.asBytes();
+            }
+            if (message instanceof BinaryMessage binary) {
+                ByteBuffer payload = binary.getPayload().duplicate();
+                byte[] bytes = new byte[payload.remaining()];
+                payload.get(bytes);
+                return bytes;
+            }
+            return new byte[0];
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.chat.websocket;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Activa o desactiva el modo batch de una sesión según se suscriba o no al destino de batch
+ */
+@Component
+@RequiredArgsConstructor
+public class EventBatchSubscriptionInterceptor implements ChannelInterceptor {
+
+    private final EventBatcher eventBatcher;
+
+    @Override
+    public void afterSendCompletion(@NonNull Message<?> message, @NonNull MessageChannel channel,
+                                    boolean sent, Exception ex) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (!sent || accessor == null || accessor.getSessionId() == null) {
+            return;
+        }
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())
+                && eventBatcher.isBatchDestination(accessor.getDestination())) {
+            eventBatcher.subscribe(accessor.getSessionId(), accessor.getSubscriptionId());
+        } else if (StompCommand.UNSUBSCRIBE.equals(accessor.getCommand())) {
+            eventBatcher.unsubscribe(accessor.getSessionId(), accessor.getSubscriptionId());
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.chat.websocket;
+
+import com.chat.config.WebSocketTransportConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agrupa los eventos salientes de las sesiones suscritas al destino de batch (por defecto /user/queue/batch).
+ * Durante una ventana de pocos milisegundos los MESSAGE de la sesión se acumulan y se entregan como un solo
+ * frame en esa suscripción, con un array JSON de {destination, subscription, body}. Los cuerpos JSON se
+ * copian tal cual, sin volver a serializarlos.
+ */
+@Component
+@Slf4j
+public class EventBatcher implements ChannelInterceptor {
+
+    private static final String BATCH_HEADER = "chatEventBatch";
+
+    private final WebSocketTransportConfig.Batch config;
+    private final ObjectMapper objectMapper;
+    private final Map<String, SessionBatch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final DistributionSummary eventsPerFrame;
+
+    /**
+     * Canal de salida, capturado en el primer preSend (el interceptor se registra sobre él)
+     */
+    private volatile MessageChannel outboundChannel;
+
+    public EventBatcher(WebSocketTransportConfig transportConfig, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.config = transportConfig.getBatch();
+        this.objectMapper = objectMapper;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-batch-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.eventsPerFrame = DistributionSummary.builder("chat.websocket.batch.events_per_frame")
+                .description("Eventos entregados en cada frame agrupado")
+                .register(meterRegistry);
+    }
+
+    public boolean isBatchDestination(String destination) {
+        return config.isEnabled() && config.getDestination().equals(destination);
+    }
+
+    void subscribe(String sessionId, String subscriptionId) {
+        batches.put(sessionId, new SessionBatch(sessionId, subscriptionId));
+    }
+
+    void unsubscribe(String sessionId, String subscriptionId) {
+        SessionBatch batch = batches.get(sessionId);
+        if (batch != null && batch.subscriptionId.equals(subscriptionId)) {
+            batches.remove(sessionId);
+            batch.flush();
+        }
+    }
+
+    @EventListener
+    public void onSessionDisconnect(SessionDisconnectEvent event) {
+        SessionBatch batch = batches.remove(event.getSessionId());
+        if (batch != null) {
+            batch.discard();
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        if (batches.isEmpty()
+                || SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE
+                || headers.containsKey(BATCH_HEADER)
+                || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+        SessionBatch batch = batches.get(SimpMessageHeaderAccessor.getSessionId(headers));
+        if (batch == null) {
+            return message;
+        }
+        outboundChannel = channel;
+
+        byte[] element = encodeElement(headers, payload);
+        if (element == null) {
+            // Contenido que no se puede incrustar en JSON: se entrega aparte, tras lo ya acumulado
+            batch.flush();
+            return message;
+        }
+        batch.add(element);
+        return null;
+    }
+
+    /**
+     * {"destination":...,"subscription":...,"body":...}; null si el cuerpo no es JSON ni texto
+     */
+    private byte[] encodeElement(MessageHeaders headers, byte[] payload) {
+        MimeType contentType = headers.get(MessageHeaders.CONTENT_TYPE, MimeType.class);
+        boolean json = contentType != null && MimeTypeUtils.APPLICATION_JSON.equalsTypeAndSubtype(contentType);
+        boolean text = contentType != null && "text".equals(contentType.getType());
+        if (!json && !text) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length + 96);
+            out.writeBytes("{\"destination\":".getBytes(StandardCharsets.UTF_8));
+            out.writeBytes(objectMapper.writeValueAsBytes(clientDestination(headers)));
+            out.writeBytes(",\"subscription\":".getBytes(StandardCharsets.UTF_8));
+            out.writeBytes(objectMapper.writeValueAsBytes(SimpMessageHeaderAccessor.getSubscriptionId(headers)));
+            out.writeBytes(",\"body\":".getBytes(StandardCharsets.UTF_8));
+            out.writeBytes(json ? payload : objectMapper.writeValueAsBytes(new String(payload, StandardCharsets.UTF_8)));
+            out.write('}');
+            return out.toByteArray();
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Destino tal como lo ve el cliente (los de usuario llegan traducidos, p. ej. /queue/x-user{sesión})
+     */
+    private static String clientDestination(MessageHeaders headers) {
+        Object original = headers.get(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
+        return original instanceof String destination ? destination : SimpMessageHeaderAccessor.getDestination(headers);
+    }
+
+    private final class SessionBatch {
+
+        private final String sessionId;
+        private final String subscriptionId;
+        private ByteArrayOutputStream buffer;
+        private int events;
+        private ScheduledFuture<?> scheduled;
+
+        SessionBatch(String sessionId, String subscriptionId) {
+            this.sessionId = sessionId;
+            this.subscriptionId = subscriptionId;
+        }
+
+        synchronized void add(byte[] element) {
+            if (buffer == null) {
+                buffer = new ByteArrayOutputStream(Math.max(256, element.length * 4));
+                buffer.write('[');
+                scheduled = scheduler.schedule(this::flush, config.getWindowMs(), TimeUnit.MILLISECONDS);
+            } else {
+                buffer.write(',');
+            }
+            buffer.writeBytes(element);
+            events++;
+            if (events >= config.getMaxEvents() || buffer.size() >= config.getMaxBytes()) {
+                flush();
+            }
+        }
+
+        synchronized void flush() {
+            if (buffer == null) {
+                return;
+            }
+            buffer.write(']');
+            byte[] frame = buffer.toByteArray();
+            int count = events;
+            buffer = null;
+            events = 0;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+
+            MessageChannel channel = outboundChannel;
+            if (channel == null) {
+                return;
+            }
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setSessionId(sessionId);
+            accessor.setSubscriptionId(subscriptionId);
+            accessor.setDestination(config.getDestination());
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            accessor.setHeader(BATCH_HEADER, count);
+            accessor.setLeaveMutable(true);
+            try {
+                channel.send(MessageBuilder.createMessage(frame, accessor.getMessageHeaders()));
+                eventsPerFrame.record(count);
+            } catch (RuntimeException e) {
+                log.warn("Could not deliver event batch to session {}: {}", sessionId, e.getMessage());
+            }
+        }
+
+        synchronized void discard() {
+            buffer = null;
+            events = 0;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+        }
+    }
+}
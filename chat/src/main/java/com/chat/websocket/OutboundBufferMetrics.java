@@ -0,0 +1,81 @@
+package com.chat.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Métricas del buffer de salida de las sesiones WebSocket.
+ * No se etiqueta por sesión (cardinalidad): se publica la distribución de profundidades,
+ * el máximo y el total actuales.
+ */
+@Component
+public class OutboundBufferMetrics {
+
+    private final Set<ConcurrentWebSocketSessionDecorator> sessions = ConcurrentHashMap.newKeySet();
+    private final DistributionSummary depth;
+    private final Counter droppedFrames;
+    private final Counter slowConsumerDisconnects;
+
+    public OutboundBufferMetrics(MeterRegistry meterRegistry) {
+        this.depth = DistributionSummary.builder("chat.websocket.outbound.buffer_depth")
+                .description("Bytes pendientes en el buffer de la sesión tras encolar un frame")
+                .baseUnit("bytes")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.outbound.buffer_depth.max", this, OutboundBufferMetrics::maxDepth)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.outbound.buffered_bytes", this, OutboundBufferMetrics::totalDepth)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.droppedFrames = Counter.builder("chat.websocket.outbound.dropped")
+                .tag("reason", "low_priority")
+                .register(meterRegistry);
+        this.slowConsumerDisconnects = Counter.builder("chat.websocket.outbound.disconnects")
+                .tag("reason", "slow_consumer")
+                .register(meterRegistry);
+    }
+
+    void sessionOpened(ConcurrentWebSocketSessionDecorator session) {
+        sessions.add(session);
+    }
+
+    void sessionClosed(ConcurrentWebSocketSessionDecorator session) {
+        sessions.remove(session);
+    }
+
+    void enqueued(int bufferedBytes) {
+        depth.record(bufferedBytes);
+    }
+
+    void dropped() {
+        droppedFrames.increment();
+    }
+
+    void disconnected() {
+        slowConsumerDisconnects.increment();
+    }
+
+    private double maxDepth() {
+        int max = 0;
+        for (ConcurrentWebSocketSessionDecorator session : sessions) {
+            max = Math.max(max, session.getBufferSize());
+        }
+        return max;
+    }
+
+    private double totalDepth() {
+        long total = 0;
+        for (ConcurrentWebSocketSessionDecorator session : sessions) {
+            total += session.getBufferSize();
+        }
+        return total;
+    }
+}
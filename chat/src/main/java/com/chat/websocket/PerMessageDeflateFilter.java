@@ -0,0 +1,110 @@
+package com.chat.websocket;
+
+import com.chat.config.WebSocketTransportConfig;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Ajusta la oferta de permessage-deflate del cliente antes del upgrade a WebSocket.
+ * Tomcat negocia las extensiones leyendo directamente la cabecera Sec-WebSocket-Extensions,
+ * así que la configuración se aplica reescribiéndola.
+ */
+@Component
+@RequiredArgsConstructor
+public class PerMessageDeflateFilter extends OncePerRequestFilter {
+
+    static final String EXTENSION = "permessage-deflate";
+    private static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+
+    private final WebSocketTransportConfig transportConfig;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return request.getHeader(EXTENSIONS_HEADER) == null
+                || !"websocket".equalsIgnoreCase(request.getHeader("Upgrade"));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        WebSocketTransportConfig.Compression compression = transportConfig.getCompression();
+        if (compression.isEnabled() && compression.isContextTakeover()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        List<String> offers = new ArrayList<>();
+        for (String header : Collections.list(request.getHeaders(EXTENSIONS_HEADER))) {
+            for (String offer : header.split(",")) {
+                String rewritten = rewrite(offer.trim(), compression);
+                if (rewritten != null) {
+                    offers.add(rewritten);
+                }
+            }
+        }
+        filterChain.doFilter(new ExtensionsRequest(request, offers), response);
+    }
+
+    /**
+     * Devuelve la oferta a conservar, o null si se descarta
+     */
+    private String rewrite(String offer, WebSocketTransportConfig.Compression compression) {
+        if (offer.isEmpty()) {
+            return null;
+        }
+        int paramsStart = offer.indexOf(';');
+        String name = (paramsStart < 0 ? offer : offer.substring(0, paramsStart)).trim();
+        if (!EXTENSION.equalsIgnoreCase(name)) {
+            return offer;
+        }
+        if (!compression.isEnabled()) {
+            return null;
+        }
+        return offer.contains(SERVER_NO_CONTEXT_TAKEOVER) ? offer : offer + "; " + SERVER_NO_CONTEXT_TAKEOVER;
+    }
+
+    private static final class ExtensionsRequest extends HttpServletRequestWrapper {
+
+        private final List<String> offers;
+
+        ExtensionsRequest(HttpServletRequest request, List<String> offers) {
+            super(request);
+            this.offers = offers;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (EXTENSIONS_HEADER.equalsIgnoreCase(name)) {
+                return offers.isEmpty() ? null : String.join(", ", offers);
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (EXTENSIONS_HEADER.equalsIgnoreCase(name)) {
+                return offers.isEmpty()
+                        ? Collections.emptyEnumeration()
+                        : Collections.enumeration(List.of(String.join(", ", offers)));
+            }
+            return super.getHeaders(name);
+        }
+    }
+}
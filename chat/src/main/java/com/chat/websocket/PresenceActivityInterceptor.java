@@ -0,0 +1,52 @@
+package com.chat.websocket;
+
+import com.chat.module.auth.service.UserSessionActivityTracker;
+import com.chat.module.presence.service.PresenceRegistry;
+import com.chat.security.ChatPrincipal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Registra como actividad del usuario cada frame entrante de su sesión (los heartbeats no cuentan), y como
+ * actividad del dispositivo con el que inició sesión si el token del CONNECT lo indicaba
+ */
+@Component
+@RequiredArgsConstructor
+public class PresenceActivityInterceptor implements ChannelInterceptor {
+
+    /**
+     * Atributo de la sesión WebSocket con el deviceId del token usado en el CONNECT
+     */
+    public static final String DEVICE_ID_ATTRIBUTE = "chatDeviceId";
+
+    private final PresenceRegistry presenceRegistry;
+    private final UserSessionActivityTracker userSessionActivityTracker;
+
+    @Override
+    public void afterSendCompletion(@NonNull Message<?> message, @NonNull MessageChannel channel,
+                                    boolean sent, Exception ex) {
+        MessageHeaders headers = message.getHeaders();
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(headers);
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (sent && sessionId != null
+                && (type == SimpMessageType.MESSAGE || type == SimpMessageType.SUBSCRIBE
+                        || type == SimpMessageType.UNSUBSCRIBE)) {
+            presenceRegistry.touch(sessionId);
+            Map<String, Object> attributes = SimpMessageHeaderAccessor.getSessionAttributes(headers);
+            if (attributes != null && attributes.get(DEVICE_ID_ATTRIBUTE) instanceof String deviceId
+                    && SimpMessageHeaderAccessor.getUser(headers) != null) {
+                userSessionActivityTracker.record(
+                        ChatPrincipal.from(SimpMessageHeaderAccessor.getUser(headers)).userId(), deviceId);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.chat.websocket;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Formato de cada sesión STOMP (el id de sesión STOMP coincide con el de la sesión WebSocket).
+ * Solo se registran las sesiones que no usan JSON.
+ */
+@Component
+public class SessionWireFormats {
+
+    private final Map<String, WireFormat> formats = new ConcurrentHashMap<>();
+
+    public void register(String sessionId, WireFormat format) {
+        if (format != WireFormat.JSON) {
+            formats.put(sessionId, format);
+        }
+    }
+
+    public void unregister(String sessionId) {
+        formats.remove(sessionId);
+    }
+
+    public WireFormat get(String sessionId) {
+        return sessionId != null ? formats.getOrDefault(sessionId, WireFormat.JSON) : WireFormat.JSON;
+    }
+}
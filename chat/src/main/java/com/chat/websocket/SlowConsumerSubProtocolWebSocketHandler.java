@@ -0,0 +1,140 @@
+package com.chat.websocket;
+
+import com.chat.config.WebSocketTransportConfig;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buffer de salida acotado por sesión con política para clientes lentos: bajo congestión se descartan
+ * primero los frames de baja prioridad (typing, presencia) y, si aun así se superan los límites de
+ * tiempo o de bytes, la sesión se cierra.
+ * Sustituye al ConcurrentWebSocketSessionDecorator que crea {@link SubProtocolWebSocketHandler}: el descarte se
+ * decide contra el mismo buffer en el que Spring encola los frames, con los límites de
+ * {@code WebSocketTransportRegistration}.
+ */
+public class SlowConsumerSubProtocolWebSocketHandler extends SubProtocolWebSocketHandler {
+
+    private static final byte[] DESTINATION_HEADER = "\ndestination:".getBytes(StandardCharsets.UTF_8);
+    private static final int HEADER_SCAN_BYTES = 1024;
+
+    private final WebSocketTransportConfig.Outbound config;
+    private final OutboundBufferMetrics metrics;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, SlowConsumerSession> sessions = new ConcurrentHashMap<>();
+
+    public SlowConsumerSubProtocolWebSocketHandler(SubscribableChannel clientInboundChannel,
+                                                   SubscribableChannel clientOutboundChannel,
+                                                   WebSocketTransportConfig.Outbound config, OutboundBufferMetrics metrics) {
+        super(clientInboundChannel, clientOutboundChannel);
+        this.config = config;
+        this.metrics = metrics;
+    }
+
+    @Override
+    @NonNull
+    protected WebSocketSession decorateSession(@NonNull WebSocketSession session) {
+        SlowConsumerSession bounded = new SlowConsumerSession(session, getSendTimeLimit(), getSendBufferSizeLimit());
+        sessions.put(session.getId(), bounded);
+        metrics.sessionOpened(bounded);
+        return bounded;
+    }
+
+    @Override
+    public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus) throws Exception {
+        SlowConsumerSession bounded = sessions.remove(session.getId());
+        if (bounded != null) {
+            metrics.sessionClosed(bounded);
+        }
+        super.afterConnectionClosed(session, closeStatus);
+    }
+
+    private boolean isLowPriority(WebSocketMessage<?> message) {
+        String destination = destinationOf(message);
+        if (destination == null) {
+            return false;
+        }
+        for (String pattern : config.getLowPriorityDestinations()) {
+            if (pathMatcher.match(pattern, destination)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lee la cabecera destination del frame STOMP ya codificado
+     */
+    private static String destinationOf(WebSocketMessage<?> message) {
+        byte[] frame;
+        if (message instanceof TextMessage text) {
+            frame = text.asBytes();
+        } else if (message instanceof BinaryMessage binary) {
+            ByteBuffer payload = binary.getPayload().duplicate();
+            frame = new byte[Math.min(payload.remaining(), HEADER_SCAN_BYTES)];
+            payload.get(frame);
+        } else {
+            return null;
+        }
+        int limit = Math.min(frame.length, HEADER_SCAN_BYTES);
+        outer:
+        for (int i = 0; i + DESTINATION_HEADER.length <= limit; i++) {
+            if (frame[i] == '\n' && i + 1 < limit && frame[i + 1] == '\n') {
+                return null;
+            }
+            for (int j = 0; j < DESTINATION_HEADER.length; j++) {
+                if (frame[i + j] != DESTINATION_HEADER[j]) {
+                    continue outer;
+                }
+            }
+            int start = i + DESTINATION_HEADER.length;
+            int end = start;
+            while (end < limit && frame[end] != '\n') {
+                end++;
+            }
+            return new String(frame, start, end - start, StandardCharsets.UTF_8);
+        }
+        return null;
+    }
+
+    private final class SlowConsumerSession extends ConcurrentWebSocketSessionDecorator {
+
+        SlowConsumerSession(WebSocketSession delegate, int sendTimeLimit, int bufferSizeLimit) {
+            super(delegate, sendTimeLimit, bufferSizeLimit, OverflowStrategy.TERMINATE);
+        }
+
+        @Override
+        public void sendMessage(@NonNull WebSocketMessage<?> message) throws IOException {
+            if (isCongested() && isLowPriority(message)) {
+                metrics.dropped();
+                return;
+            }
+            try {
+                super.sendMessage(message);
+            } catch (SessionLimitExceededException e) {
+                metrics.disconnected();
+                throw e;
+            }
+            metrics.enqueued(getBufferSize());
+        }
+
+        private boolean isCongested() {
+            return getBufferSize() > config.getDropLowPriorityAboveBytes()
+                    || getTimeSinceSendStarted() > config.getDropLowPriorityAfterMs();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.chat.websocket;
+
+import com.chat.config.WebSocketTransportConfig;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Métricas de los frames salientes y de permessage-deflate.
+ * Tomcat no expone el tamaño comprimido, así que el ratio y el coste de CPU se estiman
+ * comprimiendo aparte una muestra de los frames de las sesiones con deflate.
+ */
+@Component
+public class WebSocketCompressionMetrics {
+
+    private static final int SAMPLE_BUFFER_BYTES = 8192;
+
+    private final WebSocketTransportConfig transportConfig;
+    /**
+     * Sesiones abiertas en este nodo
+     */
+    private final AtomicInteger deflateSessions = new AtomicInteger();
+    private final AtomicInteger plainSessions = new AtomicInteger();
+    private final DistributionSummary deflateFrameBytes;
+    private final DistributionSummary plainFrameBytes;
+    private final DistributionSummary compressionRatio;
+    private final Timer compressionTime;
+
+    public WebSocketCompressionMetrics(WebSocketTransportConfig transportConfig, MeterRegistry meterRegistry) {
+        this.transportConfig = transportConfig;
+        Gauge.builder("chat.websocket.sessions", deflateSessions, AtomicInteger::get)
+                .tag("compression", "deflate")
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.sessions", plainSessions, AtomicInteger::get)
+                .tag("compression", "none")
+                .register(meterRegistry);
+        this.deflateFrameBytes = DistributionSummary.builder("chat.websocket.outbound.frame_bytes")
+                .tag("compression", "deflate")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.plainFrameBytes = DistributionSummary.builder("chat.websocket.outbound.frame_bytes")
+                .tag("compression", "none")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.compressionRatio = DistributionSummary.builder("chat.websocket.compression.ratio")
+                .description("Tamaño comprimido / tamaño original, sobre una muestra de frames")
+                .register(meterRegistry);
+        this.compressionTime = Timer.builder("chat.websocket.compression.time")
+                .description("Tiempo de deflate por frame, sobre una muestra de frames")
+                .register(meterRegistry);
+    }
+
+    void sessionOpened(boolean deflate) {
+        (deflate ? deflateSessions : plainSessions).incrementAndGet();
+    }
+
+    void sessionClosed(boolean deflate) {
+        (deflate ? deflateSessions : plainSessions).decrementAndGet();
+    }
+
+    /**
+     * Registra un frame saliente y devuelve si debe pasarse a {@link #sample}
+     */
+    boolean frameSent(boolean deflate, int length) {
+        if (!deflate) {
+            plainFrameBytes.record(length);
+            return false;
+        }
+        deflateFrameBytes.record(length);
+        return length > 0 && ThreadLocalRandom.current().nextDouble() < transportConfig.getCompression().getMetricsSampleRate();
+    }
+
+    /**
+     * Sin contexto compartido entre frames: estima el peor caso de la negociación real
+     */
+    void sample(byte[] payload) {
+        if (payload.length == 0) {
+            return;
+        }
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            byte[] buffer = new byte[SAMPLE_BUFFER_BYTES];
+            long start = System.nanoTime();
+            deflater.setInput(payload);
+            deflater.finish();
+            long compressed = 0;
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(buffer);
+            }
+            compressionTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            compressionRatio.record((double) compressed / payload.length);
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.chat.websocket;
+
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Codificación de los payloads STOMP negociada por sesión
+ */
+public enum WireFormat {
+    JSON(MimeTypeUtils.APPLICATION_JSON),
+    CBOR(new MimeType("application", "cbor"));
+
+    /**
+     * Atributo de sesión WebSocket con el formato elegido en el handshake
+     */
+    public static final String SESSION_ATTRIBUTE = "chat.wireFormat";
+
+    private final MimeType mimeType;
+
+    WireFormat(MimeType mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    public MimeType getMimeType() {
+        return mimeType;
+    }
+}
@@ -0,0 +1,59 @@
+package com.chat.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Codificación CBOR de los payloads STOMP, con la misma configuración de Jackson que el JSON de la aplicación
+ */
+@Component
+@Slf4j
+public class WireFormatCodec {
+
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper jsonMapper;
+
+    public WireFormatCodec(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        // El builder es prototype: se crean mappers propios sin reemplazar el ObjectMapper de la aplicación
+        this.cborMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+        this.jsonMapper = new ObjectMapper();
+    }
+
+    /**
+     * Conversor para los SEND con content-type application/cbor (MessageRequest, TypingIndicatorRequest, ...)
+     */
+    public MessageConverter cborMessageConverter() {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(WireFormat.CBOR.getMimeType());
+        converter.setObjectMapper(cborMapper);
+        // Sin coincidencia estricta tomaría también los mensajes sin content-type
+        converter.setStrictContentTypeMatch(true);
+        return converter;
+    }
+
+    /**
+     * Versión CBOR de un mensaje JSON de salida; la de un BroadcastPayload se calcula una sola vez
+     */
+    public byte[] toCbor(Message<?> message) throws IOException {
+        if (message.getHeaders().get(BroadcastPayload.HEADER) instanceof BroadcastPayload<?> payload && payload.isJson()) {
+            byte[] cbor = payload.getCborBytes();
+            if (cbor == null) {
+                cbor = jsonToCbor(payload.getBytes());
+                payload.setCborBytes(cbor);
+            }
+            return cbor;
+        }
+        return jsonToCbor((byte[]) message.getPayload());
+    }
+
+    private byte[] jsonToCbor(byte[] json) throws IOException {
+        return cborMapper.writeValueAsBytes(jsonMapper.readTree(json));
+    }
+}
@@ -0,0 +1,33 @@
+package com.chat.websocket;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+/**
+ * Marca las sesiones abiertas en un endpoint con el formato de ese endpoint
+ */
+public class WireFormatHandshakeInterceptor implements HandshakeInterceptor {
+
+    private final WireFormat format;
+
+    public WireFormatHandshakeInterceptor(WireFormat format) {
+        this.format = format;
+    }
+
+    @Override
+    public boolean beforeHandshake(@NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response,
+                                   @NonNull WebSocketHandler wsHandler, @NonNull Map<String, Object> attributes) {
+        attributes.put(WireFormat.SESSION_ATTRIBUTE, format);
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(@NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response,
+                               @NonNull WebSocketHandler wsHandler, Exception exception) {
+    }
+}
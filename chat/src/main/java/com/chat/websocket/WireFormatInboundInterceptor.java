@@ -0,0 +1,33 @@
+package com.chat.websocket;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * En las sesiones binarias, los SEND sin content-type se interpretan como CBOR
+ */
+@Component
+@RequiredArgsConstructor
+public class WireFormatInboundInterceptor implements ChannelInterceptor {
+
+    private final SessionWireFormats sessionWireFormats;
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && StompCommand.SEND.equals(accessor.getCommand()) && accessor.getContentType() == null) {
+            WireFormat format = sessionWireFormats.get(accessor.getSessionId());
+            if (format != WireFormat.JSON) {
+                accessor.setContentType(format.getMimeType());
+            }
+        }
+        return message;
+    }
+}
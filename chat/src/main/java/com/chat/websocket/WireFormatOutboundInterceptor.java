@@ -0,0 +1,57 @@
+package com.chat.websocket;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+
+/**
+ * Recodifica en CBOR los eventos JSON dirigidos a sesiones binarias
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WireFormatOutboundInterceptor implements ChannelInterceptor {
+
+    private final SessionWireFormats sessionWireFormats;
+    private final WireFormatCodec codec;
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE
+                || !(message.getPayload() instanceof byte[])) {
+            return message;
+        }
+        WireFormat format = sessionWireFormats.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        MimeType contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE, MimeType.class);
+        if (format != WireFormat.CBOR || contentType == null
+                || !MimeTypeUtils.APPLICATION_JSON.equalsTypeAndSubtype(contentType)) {
+            return message;
+        }
+
+        byte[] cbor;
+        try {
+            cbor = codec.toCbor(message);
+        } catch (IOException e) {
+            log.warn("Could not encode outbound message as CBOR, sending JSON: {}", e.getMessage());
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setContentType(format.getMimeType());
+        accessor.removeNativeHeader(StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER);
+        accessor.removeNativeHeader(StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+}
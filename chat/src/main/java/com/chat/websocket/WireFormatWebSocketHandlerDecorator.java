@@ -0,0 +1,61 @@
+package com.chat.websocket;
+
+import org.springframework.lang.NonNull;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+
+/**
+ * Registra el formato de cada sesión y, en las sesiones binarias, envía los frames STOMP como
+ * mensajes WebSocket binarios (StompSubProtocolHandler solo lo hace para application/octet-stream).
+ */
+public class WireFormatWebSocketHandlerDecorator extends WebSocketHandlerDecorator {
+
+    private final SessionWireFormats sessionWireFormats;
+
+    public WireFormatWebSocketHandlerDecorator(WebSocketHandler delegate, SessionWireFormats sessionWireFormats) {
+        super(delegate);
+        this.sessionWireFormats = sessionWireFormats;
+    }
+
+    @Override
+    public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+        Object format = session.getAttributes().get(WireFormat.SESSION_ATTRIBUTE);
+        if (format instanceof WireFormat wireFormat && wireFormat != WireFormat.JSON) {
+            sessionWireFormats.register(session.getId(), wireFormat);
+            super.afterConnectionEstablished(new BinaryFramingSession(session));
+            return;
+        }
+        super.afterConnectionEstablished(session);
+    }
+
+    @Override
+    public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus) throws Exception {
+        sessionWireFormats.unregister(session.getId());
+        super.afterConnectionClosed(session, closeStatus);
+    }
+
+    private static final class BinaryFramingSession extends WebSocketSessionDecorator {
+
+        BinaryFramingSession(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void sendMessage(@NonNull WebSocketMessage<?> message) throws IOException {
+            if (message instanceof TextMessage text) {
+                // TextMessage conserva los bytes originales del frame, así que la conversión no pierde datos
+                super.sendMessage(new BinaryMessage(text.asBytes(), text.isLast()));
+                return;
+            }
+            super.sendMessage(message);
+        }
+    }
+}
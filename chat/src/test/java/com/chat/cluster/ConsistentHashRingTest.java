@@ -0,0 +1,82 @@
+package com.chat.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+    private static final int VIRTUAL_NODES = 128;
+    private static final int CHATS = 10_000;
+
+    @Test
+    void emptyRingHasNoOwner() {
+        ConsistentHashRing ring = ConsistentHashRing.of(List.of(), VIRTUAL_NODES);
+
+        assertNull(ring.ownerOf(1L));
+        assertTrue(ring.nodes().isEmpty());
+    }
+
+    @Test
+    void ownershipDoesNotDependOnNodeOrder() {
+        ConsistentHashRing ring = ConsistentHashRing.of(List.of("a", "b", "c"), VIRTUAL_NODES);
+        ConsistentHashRing reordered = ConsistentHashRing.of(List.of("c", "a", "b"), VIRTUAL_NODES);
+
+        for (long chatId = 0; chatId < CHATS; chatId++) {
+            assertEquals(ring.ownerOf(chatId), reordered.ownerOf(chatId));
+        }
+    }
+
+    @Test
+    void spreadsChatsAcrossNodes() {
+        ConsistentHashRing ring = ConsistentHashRing.of(List.of("a", "b", "c"), VIRTUAL_NODES);
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (long chatId = 0; chatId < CHATS; chatId++) {
+            owned.merge(ring.ownerOf(chatId), 1, Integer::sum);
+        }
+
+        assertEquals(Set.of("a", "b", "c"), owned.keySet());
+        owned.forEach((node, count) ->
+                assertTrue(count > CHATS / 5 && count < CHATS / 2, node + " owns " + count));
+    }
+
+    @Test
+    void onlyTheLeavingNodesChatsAreRemapped() {
+        ConsistentHashRing before = ConsistentHashRing.of(List.of("a", "b", "c"), VIRTUAL_NODES);
+        ConsistentHashRing after = ConsistentHashRing.of(List.of("a", "b"), VIRTUAL_NODES);
+
+        int moved = 0;
+        for (long chatId = 0; chatId < CHATS; chatId++) {
+            String owner = before.ownerOf(chatId);
+            if (owner.equals("c")) {
+                assertNotEquals("c", after.ownerOf(chatId));
+                moved++;
+            } else {
+                assertEquals(owner, after.ownerOf(chatId), "chat " + chatId);
+            }
+        }
+        assertTrue(moved > 0);
+    }
+
+    @Test
+    void aJoiningNodeOnlyTakesChats() {
+        ConsistentHashRing before = ConsistentHashRing.of(List.of("a", "b"), VIRTUAL_NODES);
+        ConsistentHashRing after = ConsistentHashRing.of(List.of("a", "b", "c"), VIRTUAL_NODES);
+
+        for (long chatId = 0; chatId < CHATS; chatId++) {
+            String owner = after.ownerOf(chatId);
+            if (!owner.equals("c")) {
+                assertEquals(before.ownerOf(chatId), owner, "chat " + chatId);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.chat.module.chat.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongLongHashMapTest {
+
+    @Test
+    void putGetAndRemove() {
+        LongLongHashMap map = new LongLongHashMap(16);
+
+        assertEquals(LongLongHashMap.NO_VALUE, map.put(1, 10));
+        assertEquals(10, map.put(1, 11));
+        map.put(-5, 50);
+
+        assertEquals(11, map.get(1));
+        assertEquals(50, map.get(-5));
+        assertEquals(LongLongHashMap.NO_VALUE, map.get(2));
+        assertEquals(11, map.remove(1));
+        assertEquals(LongLongHashMap.NO_VALUE, map.remove(1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void rejectsTheReservedKey() {
+        LongLongHashMap map = new LongLongHashMap(16);
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, 1));
+    }
+
+    @Test
+    void growsPastTheExpectedSize() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        for (long key = 0; key < 10_000; key++) {
+            map.put(key, key * 2);
+        }
+
+        assertEquals(10_000, map.size());
+        for (long key = 0; key < 10_000; key++) {
+            assertEquals(key * 2, map.get(key));
+        }
+    }
+
+    @Test
+    void removeIfValueHandlesClustersThatWrapAroundTheTable() {
+        // Tabla de 16 casillas: claves cuya posición ideal es la última forman un grupo que da la vuelta
+        LongLongHashMap map = new LongLongHashMap(8);
+        List<Long> wrapping = keysWithHome(15, 16, 5);
+        List<Long> others = keysWithHome(1, 16, 2);
+        // Se alternan valores a borrar y a conservar dentro del grupo
+        Map<Long, Long> values = new HashMap<>();
+        for (int i = 0; i < wrapping.size(); i++) {
+            values.put(wrapping.get(i), (long) (i % 2));
+            map.put(wrapping.get(i), i % 2);
+        }
+        for (long key : others) {
+            map.put(key, 1);
+        }
+
+        List<Long> removed = new ArrayList<>();
+        int count = map.removeIfValue(value -> value == 0, (key, value) -> removed.add(key));
+
+        List<Long> expectedRemoved = wrapping.stream().filter(key -> values.get(key) == 0).toList();
+        assertEquals(expectedRemoved.size(), count);
+        assertEquals(expectedRemoved.size(), removed.size());
+        assertEquals(Set.copyOf(expectedRemoved), Set.copyOf(removed));
+        assertEquals(wrapping.size() + others.size() - count, map.size());
+        for (long key : wrapping) {
+            assertEquals(values.get(key) == 0 ? LongLongHashMap.NO_VALUE : 1, map.get(key));
+        }
+        for (long key : others) {
+            assertEquals(1, map.get(key));
+        }
+    }
+
+    @Test
+    void matchesAHashMapUnderRandomOperations() {
+        LongLongHashMap map = new LongLongHashMap(16);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(2_000);
+            switch (random.nextInt(10)) {
+                case 0 -> {
+                    long arena = random.nextInt(8);
+                    map.removeIfValue(value -> value % 8 == arena, (k, v) -> {
+                    });
+                    expected.values().removeIf(value -> value % 8 == arena);
+                }
+                case 1, 2, 3 -> {
+                    Long previous = expected.remove(key);
+                    assertEquals(previous == null ? LongLongHashMap.NO_VALUE : previous, map.remove(key));
+                }
+                default -> {
+                    long value = random.nextInt(1_000_000);
+                    Long previous = expected.put(key, value);
+                    assertEquals(previous == null ? LongLongHashMap.NO_VALUE : previous, map.put(key, value));
+                }
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2_000; key++) {
+            assertEquals(expected.getOrDefault(key, LongLongHashMap.NO_VALUE), map.get(key));
+        }
+    }
+
+    /**
+     * Claves cuya posición ideal es {@code slot} en una tabla de {@code capacity} casillas (mismo mezclado que el mapa)
+     */
+    private static List<Long> keysWithHome(int slot, int capacity, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            if (((int) (h ^ (h >>> 32)) & (capacity - 1)) == slot) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,111 @@
+package com.chat.module.chat.cache;
+
+import com.chat.module.chat.dto.MessageResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapRecentMessageStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void replaysChangesAppendedAfterTheSnapshot() {
+        OffHeapRecentMessageStore store = new OffHeapRecentMessageStore(objectMapper, 5, 1 << 20, 1 << 16);
+        store.put(1L, ChatTail.of(5, List.of(message(1)), true));
+
+        store.append(1L, message(2));
+        store.append(1L, message(3));
+        store.replace(1L, message(2).toBuilder().content("edited").build());
+        store.remove(1L, "m1");
+
+        ChatTail tail = store.get(1L);
+        assertNotNull(tail);
+        assertEquals(List.of("m2", "m3"), ids(tail.oldestFirst()));
+        assertEquals("edited", tail.find("m2").getContent());
+        assertTrue(tail.isExhaustive());
+    }
+
+    @Test
+    void compactsLongChainsIntoASnapshot() {
+        OffHeapRecentMessageStore store = new OffHeapRecentMessageStore(objectMapper, 3, 1 << 20, 1 << 16);
+        store.put(1L, ChatTail.of(3, List.of(), true));
+
+        for (int i = 1; i <= 10; i++) {
+            store.append(1L, message(i));
+        }
+
+        ChatTail tail = store.get(1L);
+        assertNotNull(tail);
+        assertEquals(List.of("m10", "m9", "m8"), ids(tail.newestFirst(3)));
+        assertFalse(tail.isExhaustive());
+        // Tras compactar solo quedan vivos el snapshot y menos de messagesPerChat cambios
+        assertTrue(store.liveBytes() < 4 * 1024, "live bytes " + store.liveBytes());
+    }
+
+    @Test
+    void ignoresChangesForChatsThatAreNotStored() {
+        OffHeapRecentMessageStore store = new OffHeapRecentMessageStore(objectMapper, 3, 1 << 20, 1 << 16);
+
+        store.append(1L, message(1));
+        store.remove(1L, "m1");
+
+        assertNull(store.get(1L));
+        assertEquals(0, store.chatCount());
+        assertEquals(0, store.liveBytes());
+    }
+
+    @Test
+    void recyclingAnArenaEvictsChatsWhoseSnapshotLivesThere() {
+        OffHeapRecentMessageStore store = new OffHeapRecentMessageStore(objectMapper, 4, 8 * 1024, 2 * 1024);
+        store.put(1L, ChatTail.of(4, List.of(message(1)), false));
+        store.put(2L, ChatTail.of(4, List.of(), false));
+
+        for (int i = 1; store.recycledArenas() == 0; i++) {
+            store.put(2L, ChatTail.of(4, List.of(message(i)), false));
+        }
+
+        assertNull(store.get(1L));
+        assertEquals(1, store.chatCount());
+        assertNotNull(store.get(2L));
+    }
+
+    @Test
+    void evictKeepsByteAccountingConsistent() {
+        OffHeapRecentMessageStore store = new OffHeapRecentMessageStore(objectMapper, 5, 1 << 20, 1 << 16);
+        store.put(1L, ChatTail.of(5, List.of(message(1)), false));
+        store.append(1L, message(2));
+        store.put(2L, ChatTail.of(5, List.of(message(3)), false));
+
+        store.evict(1L);
+        long chatTwoBytes = store.liveBytes();
+        store.evict(2L);
+
+        assertTrue(chatTwoBytes > 0);
+        assertEquals(0, store.liveBytes());
+        assertEquals(0, store.chatCount());
+    }
+
+    private static MessageResponse message(int n) {
+        return MessageResponse.builder()
+                .id("m" + n)
+                .chatId(1L)
+                .senderId(7L)
+                .content("message " + n)
+                .messageType("TEXT")
+                .sentAt(LocalDateTime.of(2026, 1, 1, 12, 0).plusSeconds(n))
+                .build();
+    }
+
+    private static List<String> ids(List<MessageResponse> messages) {
+        return messages.stream().map(MessageResponse::getId).toList();
+    }
+}
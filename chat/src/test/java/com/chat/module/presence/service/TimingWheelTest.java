@@ -0,0 +1,81 @@
+package com.chat.module.presence.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    private static final long TICK_MS = 10;
+
+    @Test
+    void expiresItemsOnTheirTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(8, TICK_MS, 0);
+        wheel.schedule("a", 20);
+        wheel.schedule("b", 35);
+
+        assertTrue(wheel.advance(19).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(20));
+        assertTrue(wheel.advance(39).isEmpty());
+        assertEquals(List.of("b"), wheel.advance(40));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void clampsDeadlinesBeyondOneRevolutionToTheLastSlot() {
+        TimingWheel<String> wheel = new TimingWheel<>(8, TICK_MS, 0);
+        wheel.schedule("far", 10_000);
+
+        // Con 8 casillas la última vuelta termina en el tick 8: ahí sale para que el dueño lo reprograme
+        assertTrue(wheel.advance(70).isEmpty());
+        assertEquals(List.of("far"), wheel.advance(80));
+    }
+
+    @Test
+    void schedulesPastDeadlinesOnTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(8, TICK_MS, 100);
+        wheel.schedule("late", 50);
+
+        assertTrue(wheel.advance(100).isEmpty());
+        assertEquals(List.of("late"), wheel.advance(110));
+    }
+
+    @Test
+    void catchesUpAfterAStalledThread() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(8, TICK_MS, 0);
+        for (int i = 1; i <= 8; i++) {
+            wheel.schedule(i, i * TICK_MS);
+        }
+
+        // El hilo se retrasó varias vueltas: cada casilla se vacía una sola vez
+        List<Integer> expired = wheel.advance(10_000);
+
+        assertEquals(8, expired.size());
+        assertTrue(expired.containsAll(List.of(1, 2, 3, 4, 5, 6, 7, 8)));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void schedulesRelativeToTheCurrentTickAfterCatchingUp() {
+        TimingWheel<String> wheel = new TimingWheel<>(8, TICK_MS, 0);
+        wheel.advance(10_000);
+
+        wheel.schedule("next", 10_030);
+
+        assertTrue(wheel.advance(10_020).isEmpty());
+        assertEquals(List.of("next"), wheel.advance(10_030));
+    }
+
+    @Test
+    void advancingBackwardsDoesNotReplaySlots() {
+        TimingWheel<String> wheel = new TimingWheel<>(8, TICK_MS, 0);
+        wheel.schedule("a", 50);
+        wheel.advance(40);
+
+        assertTrue(wheel.advance(20).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(50));
+    }
+}
@@ -0,0 +1,107 @@
+package com.chat.websocket;
+
+import com.chat.config.WebSocketTransportConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlowConsumerSubProtocolWebSocketHandlerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SlowConsumerSubProtocolWebSocketHandler handler;
+    private WebSocketSession session;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        WebSocketTransportConfig.Outbound config = new WebSocketTransportConfig.Outbound();
+        config.setDropLowPriorityAboveBytes(100);
+        config.setDropLowPriorityAfterMs(60_000);
+        handler = new SlowConsumerSubProtocolWebSocketHandler(new ExecutorSubscribableChannel(),
+                new ExecutorSubscribableChannel(), config, new OutboundBufferMetrics(meterRegistry));
+        handler.setSendTimeLimit(60_000);
+        handler.setSendBufferSizeLimit(512 * 1024);
+
+        // El primer envío se queda bloqueado hasta release, como un cliente que no lee
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            WebSocketMessage<?> message = invocation.getArgument(0);
+            delivered.add(destinationOf(message));
+            sending.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return null;
+        }).when(session).sendMessage(any());
+    }
+
+    @Test
+    void dropsLowPriorityFramesWhileSpringsBufferIsBacklogged() throws Exception {
+        WebSocketSession decorated = handler.decorateSession(session);
+        Thread blocked = new Thread(() -> send(decorated, frame("/topic/chat.1", 10)));
+        blocked.start();
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // Con el envío bloqueado los frames se acumulan en el buffer de Spring
+        decorated.sendMessage(frame("/topic/chat.1", 200));
+        int backlog = ((ConcurrentWebSocketSessionDecorator) decorated).getBufferSize();
+        assertTrue(backlog > 100, "backlog " + backlog);
+
+        decorated.sendMessage(frame("/topic/chat.1.typing", 10));
+
+        assertEquals(backlog, ((ConcurrentWebSocketSessionDecorator) decorated).getBufferSize());
+        assertEquals(1.0, meterRegistry.counter("chat.websocket.outbound.dropped", "reason", "low_priority").count());
+
+        release.countDown();
+        blocked.join(5_000);
+        assertEquals(List.of("/topic/chat.1", "/topic/chat.1"), delivered);
+    }
+
+    @Test
+    void deliversLowPriorityFramesWithoutBacklog() throws Exception {
+        release.countDown();
+        WebSocketSession decorated = handler.decorateSession(session);
+
+        decorated.sendMessage(frame("/topic/chat.1.typing", 10));
+
+        assertEquals(List.of("/topic/chat.1.typing"), delivered);
+        assertEquals(0.0, meterRegistry.counter("chat.websocket.outbound.dropped", "reason", "low_priority").count());
+    }
+
+    private static void send(WebSocketSession session, TextMessage message) {
+        try {
+            session.sendMessage(message);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static TextMessage frame(String destination, int bodyLength) {
+        return new TextMessage("MESSAGE\ndestination:" + destination + "\n\n" + "x".repeat(bodyLength) + "\u0000");
+    }
+
+    private static String destinationOf(WebSocketMessage<?> message) {
+        String frame = ((TextMessage) message).getPayload();
+        int start = frame.indexOf("destination:") + "destination:".length();
+        return frame.substring(start, frame.indexOf('\n', start));
+    }
+}
@@ -0,0 +1,190 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark de throughput de envíos concurrentes por STOMP (/app/chat.send).
+ *
+ * Abre un suscriptor en /topic/chat.{chat} y N clientes que envían M mensajes cada uno a la vez;
+ * mide el tiempo hasta que el suscriptor recibe los N*M mensajes. Usa el endpoint /ws-binary
+ * (WebSocket nativo) para no depender de un cliente SockJS; solo requiere un JDK 21.
+ *
+ * Uso (comparar el backend con VIRTUAL_THREADS_ENABLED=false y =true):
+ *   java scripts/StompSendBenchmark.java --token <jwt> --chat <chatId> [--clients 200] [--messages 20]
+ *        [--url ws://localhost:8080/ws-binary]
+ * El usuario del token debe participar en el chat.
+ */
+public class StompSendBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String url = options.getOrDefault("url", "ws://localhost:8080/ws-binary");
+        String token = require(options, "token");
+        long chatId = Long.parseLong(require(options, "chat"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "200"));
+        int messages = Integer.parseInt(options.getOrDefault("messages", "20"));
+        int expected = clients * messages;
+
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        CountDownLatch received = new CountDownLatch(expected);
+        StompConnection subscriber = StompConnection.open(http, url, token, received);
+        subscriber.send("SUBSCRIBE\nid:bench\ndestination:/topic/chat." + chatId + "\n\n");
+        Thread.sleep(500);
+
+        List<StompConnection> senders = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            senders.add(StompConnection.open(http, url, token, null));
+        }
+        System.out.printf("Connected %d senders, sending %d messages each%n", clients, messages);
+
+        AtomicLong sendErrors = new AtomicLong();
+        long start = System.nanoTime();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                StompConnection sender = senders.get(c);
+                int client = c;
+                executor.submit(() -> {
+                    for (int m = 0; m < messages; m++) {
+                        String body = "{\"chatId\":" + chatId + ",\"content\":\"bench " + client + "-" + m
+                                + "\",\"messageType\":\"TEXT\"}";
+                        try {
+                            sender.send("SEND\ndestination:/app/chat.send\ncontent-type:application/json\n"
+                                    + "content-length:" + body.getBytes(StandardCharsets.UTF_8).length + "\n\n" + body);
+                        } catch (Exception e) {
+                            sendErrors.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        long sent = System.nanoTime();
+
+        boolean complete = received.await(120, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+        long delivered = expected - received.getCount();
+
+        System.out.printf("Sent %d messages in %.0f ms (%d send errors)%n",
+                expected, (sent - start) / 1e6, sendErrors.get());
+        System.out.printf("Delivered %d/%d in %.0f ms%s%n",
+                delivered, expected, elapsed / 1e6, complete ? "" : " (timed out)");
+        System.out.printf("Throughput: %.1f messages/s%n", delivered / (elapsed / 1e9));
+
+        for (StompConnection sender : senders) {
+            sender.close();
+        }
+        subscriber.close();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static String require(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            System.err.println("Missing --" + name);
+            System.exit(1);
+        }
+        return value;
+    }
+
+    /**
+     * Cliente STOMP mínimo sobre java.net.http.WebSocket: un frame por mensaje WebSocket
+     */
+    static final class StompConnection implements WebSocket.Listener {
+
+        private final CountDownLatch messages;
+        private final CompletableFuture<Void> connected = new CompletableFuture<>();
+        private final ByteBuffer pending = ByteBuffer.allocate(1 << 20);
+        private final StringBuilder pendingText = new StringBuilder();
+        private WebSocket webSocket;
+
+        private StompConnection(CountDownLatch messages) {
+            this.messages = messages;
+        }
+
+        static StompConnection open(HttpClient http, String url, String token, CountDownLatch messages)
+                throws Exception {
+            StompConnection connection = new StompConnection(messages);
+            connection.webSocket = http.newWebSocketBuilder()
+                    .subprotocols("v12.stomp")
+                    .buildAsync(URI.create(url), connection)
+                    .get(10, TimeUnit.SECONDS);
+            connection.send("CONNECT\naccept-version:1.2\nheart-beat:0,0\nAuthorization:Bearer " + token + "\n\n");
+            connection.connected.get(10, TimeUnit.SECONDS);
+            return connection;
+        }
+
+        /**
+         * java.net.http.WebSocket no admite envíos concurrentes en la misma conexión
+         */
+        synchronized void send(String frame) throws Exception {
+            webSocket.sendText(frame + "\0", true).get(30, TimeUnit.SECONDS);
+        }
+
+        void close() {
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "done");
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            pending.put(data);
+            if (last) {
+                pending.flip();
+                byte[] frame = new byte[pending.remaining()];
+                pending.get(frame);
+                pending.clear();
+                onFrame(new String(frame, 0, Math.min(frame.length, 16), StandardCharsets.UTF_8));
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            pendingText.append(data);
+            if (last) {
+                onFrame(pendingText.toString());
+                pendingText.setLength(0);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            connected.completeExceptionally(error);
+        }
+
+        private void onFrame(String frame) {
+            if (frame.startsWith("CONNECTED")) {
+                connected.complete(null);
+            } else if (frame.startsWith("MESSAGE") && messages != null) {
+                messages.countDown();
+            } else if (frame.startsWith("ERROR")) {
+                connected.completeExceptionally(new IllegalStateException("STOMP error: " + frame));
+            }
+        }
+    }
+}